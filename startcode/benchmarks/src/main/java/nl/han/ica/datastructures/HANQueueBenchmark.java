@@ -0,0 +1,43 @@
+package nl.han.ica.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of filling and draining a queue of n items. With an O(1) append this should grow linearly in n.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HANQueueBenchmark {
+
+    @Param({"16", "256", "4096", "65536"})
+    public int size;
+
+    @Benchmark
+    public HANQueue<Integer> enqueue() {
+        HANQueue<Integer> queue = new HANQueue<>();
+        for (int i = 0; i < size; i++) {
+            queue.enqueue(i);
+        }
+        return queue;
+    }
+
+    @Benchmark
+    public int enqueueDequeue() {
+        HANQueue<Integer> queue = new HANQueue<>();
+        for (int i = 0; i < size; i++) {
+            queue.enqueue(i);
+        }
+
+        int sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.dequeue();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,54 @@
+package nl.han.ica.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a variable lookup against the scope depth of the symbol table.
+ * The global is only found in the outermost scope, so every lookup walks all scopes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymbolTableBenchmark {
+
+    @Param({"1", "4", "16", "64", "256"})
+    public int depth;
+
+    private SymbolTable<String, Integer> table;
+
+    @Setup
+    public void setup() {
+        table = new SymbolTable<>();
+        table.pushScope();
+        table.putVariable("Global", 0);
+
+        for (int i = 1; i < depth; i++) {
+            table.pushScope();
+            table.putVariable("Local" + i, i);
+        }
+    }
+
+    @Benchmark
+    public Integer lookupOutermost() {
+        return table.getVariable("Global");
+    }
+
+    @Benchmark
+    public Integer lookupMissing() {
+        return table.getVariable("Undefined");
+    }
+
+    @Benchmark
+    public int pushAndPopScope() {
+        table.pushScope();
+        table.putVariable("Temporary", depth);
+        int size = table.getSize();
+        table.popScope();
+        return size;
+    }
+}
@@ -0,0 +1,30 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CheckBenchmark {
+
+    private AST ast;
+
+    // Checking doesn't change a valid tree, so one parsed tree is reused for all invocations
+    @Setup
+    public void setup(SourceState state) {
+        ast = state.parseAndCheck().getAST();
+    }
+
+    @Benchmark
+    public AST check() {
+        new Checker().check(ast);
+        return ast;
+    }
+}
@@ -0,0 +1,55 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EvaluateBenchmark {
+
+    // apply replaces the root of the tree, so every invocation needs a freshly parsed one.
+    // For the tiny level inputs the per-invocation setup makes the timings noisy.
+    @State(Scope.Benchmark)
+    public static class ApplyState {
+        private SourceState source;
+        AST ast;
+
+        @Setup(Level.Trial)
+        public void setupTrial(SourceState source) {
+            this.source = source;
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            ast = source.parseAndCheck().getAST();
+        }
+    }
+
+    // evaluate leaves the tree alone, so one tree is enough
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        AST ast;
+
+        @Setup(Level.Trial)
+        public void setupTrial(SourceState source) {
+            ast = source.parseAndCheck().getAST();
+        }
+    }
+
+    @Benchmark
+    public AST apply(ApplyState state) {
+        new Evaluator().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST evaluateShared(SharedState state) {
+        return new Evaluator().evaluate(state.ast);
+    }
+}
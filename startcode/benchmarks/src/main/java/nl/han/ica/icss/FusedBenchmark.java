@@ -0,0 +1,78 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.FusedGenerator;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything after parsing: check, collect errors, transform and generate as separate passes,
+ * against the single fused pass. Both write to a reused StringBuilder.
+ *
+ * Example: -p input=synthetic-100k -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FusedBenchmark {
+
+    // The staged path rewrites the tree, so it needs a freshly parsed one every invocation
+    @State(Scope.Benchmark)
+    public static class StagedState {
+        private SourceState source;
+        AST ast;
+        final StringBuilder out = new StringBuilder();
+
+        @Setup(Level.Trial)
+        public void setupTrial(SourceState source) {
+            this.source = source;
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            ast = source.parse().getAST();
+            out.setLength(0);
+        }
+    }
+
+    // The fused path leaves the tree alone, so one tree is enough. Unlike the staged path,
+    // its allocation numbers don't include parsing.
+    @State(Scope.Benchmark)
+    public static class FusedState {
+        AST ast;
+        final FusedGenerator generator = new FusedGenerator();
+        final StringBuilder out = new StringBuilder();
+
+        @Setup(Level.Trial)
+        public void setupTrial(SourceState source) {
+            ast = source.parse().getAST();
+        }
+    }
+
+    @Benchmark
+    public StringBuilder staged(StagedState state) throws IOException {
+        new Checker().check(state.ast);
+        if (!state.ast.getErrors().isEmpty()) {
+            throw new IllegalStateException("Benchmark input doesn't check");
+        }
+        new Evaluator().apply(state.ast);
+        new Generator().generate(state.ast, state.out);
+        return state.out;
+    }
+
+    @Benchmark
+    public StringBuilder fused(FusedState state) throws IOException {
+        state.out.setLength(0);
+        if (!state.generator.generate(state.ast, state.out).isEmpty()) {
+            throw new IllegalStateException("Benchmark input doesn't check");
+        }
+        return state.out;
+    }
+}
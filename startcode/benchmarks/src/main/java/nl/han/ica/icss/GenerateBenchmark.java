@@ -0,0 +1,65 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GenerateBenchmark {
+
+    private AST ast;
+    private final Generator streamingGenerator = new Generator();
+    private final CountingChannel channel = new CountingChannel();
+
+    @Setup
+    public void setup(SourceState state) {
+        Pipeline pipeline = state.parseAndCheck();
+        pipeline.transform();
+        ast = pipeline.getAST();
+    }
+
+    @Benchmark
+    public String generate() {
+        return new Generator().generate(ast);
+    }
+
+    // Same output, streamed through the generator's fixed buffer instead of building a String
+    @Benchmark
+    public long generateToChannel() throws IOException {
+        channel.written = 0;
+        streamingGenerator.generate(ast, channel);
+        return channel.written;
+    }
+
+    // Discards the bytes, so only the cost of generating is measured
+    private static class CountingChannel implements WritableByteChannel {
+        long written;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            source.position(source.limit());
+            written += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
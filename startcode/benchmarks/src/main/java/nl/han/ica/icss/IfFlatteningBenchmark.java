@@ -0,0 +1,113 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates style rules that each hold a few hundred if clauses next to each other, half of
+ * them taken, with an else clause on every other one. Stresses flattening the if clauses into
+ * the body of the rule and removing the duplicate declarations that come out of them.
+ *
+ * Example: -p ifsPerRule=100,500
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IfFlatteningBenchmark {
+    private static final String[] PROPERTIES = {"width", "height", "color", "background-color"};
+
+    @State(Scope.Benchmark)
+    public static class Source {
+        @Param({"100", "500"})
+        public int ifsPerRule;
+
+        @Param({"50"})
+        public int rules;
+
+        String source;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            StringBuilder builder = new StringBuilder("On := TRUE;\nOff := FALSE;\n");
+            for (int rule = 0; rule < rules; rule++) {
+                builder.append(".rule").append(rule).append(" {\n  width: 1px;\n");
+                for (int i = 0; i < ifsPerRule; i++) {
+                    builder.append("  if[").append(i % 2 == 0 ? "On" : "Off").append("] { ");
+                    declaration(builder, i);
+                    builder.append("}");
+                    if (i % 4 == 1) {
+                        builder.append(" else { ");
+                        declaration(builder, i + 1);
+                        builder.append("}");
+                    }
+                    builder.append('\n');
+                }
+                builder.append("}\n");
+            }
+            source = builder.toString();
+        }
+
+        private static void declaration(StringBuilder builder, int i) {
+            String property = PROPERTIES[i % PROPERTIES.length];
+            builder.append(property).append(": ");
+            if (property.endsWith("color")) {
+                builder.append(String.format("#%06x", i));
+            } else {
+                builder.append(i).append("px");
+            }
+            builder.append("; ");
+        }
+
+        Pipeline parseAndCheck() {
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(source);
+            if (!pipeline.check()) {
+                throw new IllegalStateException("Benchmark input doesn't check: " + pipeline.getErrors());
+            }
+            return pipeline;
+        }
+    }
+
+    // apply replaces the root of the tree, so every invocation gets a freshly parsed one
+    @State(Scope.Benchmark)
+    public static class ApplyState {
+        private Source source;
+        AST ast;
+
+        @Setup(Level.Trial)
+        public void setupTrial(Source source) {
+            this.source = source;
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            ast = source.parseAndCheck().getAST();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        AST ast;
+
+        @Setup(Level.Trial)
+        public void setupTrial(Source source) {
+            ast = source.parseAndCheck().getAST();
+        }
+    }
+
+    @Benchmark
+    public AST apply(ApplyState state) {
+        new Evaluator().apply(state.ast);
+        return state.ast;
+    }
+
+    @Benchmark
+    public AST evaluateShared(SharedState state) {
+        return new Evaluator().evaluate(state.ast);
+    }
+}
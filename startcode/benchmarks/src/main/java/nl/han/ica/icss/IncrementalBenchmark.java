@@ -0,0 +1,55 @@
+package nl.han.ica.icss;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An edit in the editor: the source changes in one style rule and every stage runs again.
+ * Every invocation switches between two versions of the source, so the incremental pipeline
+ * always has one changed rule.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class IncrementalBenchmark {
+
+    private String[] versions;
+    private int next = 0;
+    private final IncrementalPipeline incremental = new IncrementalPipeline();
+
+    @Setup
+    public void setup(SourceState state) {
+        // Adds a declaration to the last rule
+        int last = state.source.lastIndexOf('}');
+        String edited = state.source.substring(0, last) + "width: 1px;\n" + state.source.substring(last);
+        versions = new String[] {state.source, edited};
+
+        compile(incremental, versions[0]);
+    }
+
+    private String nextVersion() {
+        next ^= 1;
+        return versions[next];
+    }
+
+    private static String compile(Pipeline pipeline, String source) {
+        pipeline.parseString(source);
+        pipeline.check();
+        pipeline.transform();
+        return pipeline.generate();
+    }
+
+    @Benchmark
+    public String full() {
+        return compile(new Pipeline(), nextVersion());
+    }
+
+    @Benchmark
+    public String incremental() {
+        return compile(incremental, nextVersion());
+    }
+}
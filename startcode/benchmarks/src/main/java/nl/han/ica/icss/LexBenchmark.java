@@ -0,0 +1,58 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.parser.ByteLexer;
+import nl.han.ica.icss.parser.ICSSLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexes the whole source with the generated ICSSLexer and with the hand-written ByteLexer.
+ * The tokens counter reports tokens per second next to the lexes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LexBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class BytesState {
+        public byte[] bytes;
+
+        @Setup
+        public void encode(SourceState state) {
+            bytes = state.source.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tokens;
+    }
+
+    @Benchmark
+    public void antlrLexer(SourceState state, Counters counters, Blackhole blackhole) {
+        lex(new ICSSLexer(CharStreams.fromString(state.source)), counters, blackhole);
+    }
+
+    @Benchmark
+    public void byteLexer(BytesState state, Counters counters, Blackhole blackhole) {
+        lex(new ByteLexer(state.bytes, ConsoleErrorListener.INSTANCE), counters, blackhole);
+    }
+
+    private static void lex(TokenSource lexer, Counters counters, Blackhole blackhole) {
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            blackhole.consume(token);
+            counters.tokens++;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+
+    // The source written to a temporary file, for parseFile
+    @State(Scope.Benchmark)
+    public static class FileState {
+        public Path file;
+
+        @Setup
+        public void write(SourceState state) throws IOException {
+            file = Files.createTempFile("benchmark", ".icss");
+            Files.writeString(file, state.source);
+        }
+
+        @TearDown
+        public void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public AST parseString(SourceState state) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(state.source);
+        return pipeline.getAST();
+    }
+
+    // Same, with the hand-written ASTParser instead of the Antlr parse tree and ASTListener
+    @Benchmark
+    public AST parseStringDirect(SourceState state) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setDirectParsing(true);
+        pipeline.parseString(state.source);
+        return pipeline.getAST();
+    }
+
+    // Reads the file and parses it as a String, what callers did before parseFile
+    @Benchmark
+    public AST parseReadFile(FileState state) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(Files.readString(state.file));
+        return pipeline.getAST();
+    }
+
+    // Same, but lexes straight from the memory-mapped file
+    @Benchmark
+    public AST parseFile(FileState state) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseFile(state.file);
+        return pipeline.getAST();
+    }
+
+    // The direct parser on the ByteLexer, which lexes the mapped bytes
+    @Benchmark
+    public AST parseFileDirect(FileState state) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setDirectParsing(true);
+        pipeline.parseFile(state.file);
+        return pipeline.getAST();
+    }
+
+    // The style rules parsed on every core, at least two threads so the split is measured on one core too
+    @Benchmark
+    public AST parseStringParallel(SourceState state) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setParsingThreads(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        pipeline.parseString(state.source);
+        return pipeline.getAST();
+    }
+}
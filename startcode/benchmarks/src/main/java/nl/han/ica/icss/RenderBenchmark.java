@@ -0,0 +1,51 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.generator.CompiledStylesheet;
+import nl.han.ica.icss.generator.StylesheetProgram;
+import nl.han.ica.icss.generator.Variables;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a stylesheet that was compiled up front with the values of its globals: interpreted
+ * by the StylesheetProgram and as generated classes by the CompiledStylesheet. The concat
+ * variant copies the finished CSS into a new string, as the cost to compare with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+    private StylesheetProgram program;
+    private Variables programVariables;
+    private CompiledStylesheet compiled;
+    private Variables compiledVariables;
+    private String css;
+
+    @Setup
+    public void setup(SourceState state) {
+        program = new StylesheetProgram(state.parseAndCheck().getAST());
+        programVariables = program.newVariables();
+        compiled = CompiledStylesheet.compile(state.parse().getAST());
+        compiledVariables = compiled.newVariables();
+        css = compiled.render(compiledVariables);
+    }
+
+    @Benchmark
+    public String interpreted() {
+        return program.render(programVariables);
+    }
+
+    @Benchmark
+    public String compiled() {
+        return compiled.render(compiledVariables);
+    }
+
+    @Benchmark
+    public String concat() {
+        return new StringBuilder(css.length()).append(css).toString();
+    }
+}
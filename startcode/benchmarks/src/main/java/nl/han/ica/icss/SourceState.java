@@ -0,0 +1,82 @@
+package nl.han.ica.icss;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The ICSS source a benchmark compiles. Either one of the shipped level0-level3 examples or
+ * a synthetic stylesheet with the given number of declarations, if nesting depth and variables.
+ *
+ * Example: -p input=synthetic-100k -p ifDepth=0,4 -p variables=16,1024
+ */
+@State(Scope.Benchmark)
+public class SourceState {
+
+    @Param({"level0", "level1", "level2", "level3", "synthetic-1k", "synthetic-100k", "synthetic-1m"})
+    public String input;
+
+    // Only used by the synthetic inputs
+    @Param({"2"})
+    public int ifDepth;
+
+    @Param({"16"})
+    public int variables;
+
+    public String source;
+
+    @Setup
+    public void load() throws IOException {
+        source = load(input, ifDepth, variables);
+    }
+
+    public static String load(String input, int ifDepth, int variables) throws IOException {
+        switch (input) {
+            case "synthetic-1k":
+                return new SyntheticStylesheet(1_000, ifDepth, variables).generate();
+            case "synthetic-100k":
+                return new SyntheticStylesheet(100_000, ifDepth, variables).generate();
+            case "synthetic-1m":
+                return new SyntheticStylesheet(1_000_000, ifDepth, variables).generate();
+            default:
+                return resource(input + ".icss");
+        }
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream stream = SourceState.class.getClassLoader().getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IOException("Unknown benchmark input: " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parses the source with a fresh pipeline, fails when the source isn't valid ICSS.
+     */
+    public Pipeline parse() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        if (!pipeline.isParsed()) {
+            throw new IllegalStateException("Benchmark input " + input + " doesn't parse: " + pipeline.getErrors());
+        }
+        return pipeline;
+    }
+
+    /**
+     * Parses and checks the source with a fresh pipeline, fails when the source isn't valid ICSS.
+     */
+    public Pipeline parseAndCheck() {
+        Pipeline pipeline = parse();
+        if (!pipeline.check()) {
+            throw new IllegalStateException("Benchmark input " + input + " doesn't check: " + pipeline.getErrors());
+        }
+        return pipeline;
+    }
+}
@@ -0,0 +1,141 @@
+package nl.han.ica.icss;
+
+/**
+ * Generates valid ICSS sources of a given size for the benchmarks.
+ * The output is deterministic, so runs with the same parameters compile the exact same input.
+ */
+public class SyntheticStylesheet {
+    private static final int DECLARATIONS_PER_RULE = 8;
+
+    private final int declarations;
+    private final int ifDepth;
+    private final int variables;
+
+    /**
+     * @param declarations total number of declarations in the stylesheet
+     * @param ifDepth how deep the if clauses in every style rule are nested, 0 for none
+     * @param variables number of global variables, at least 4 (one of every type)
+     */
+    public SyntheticStylesheet(int declarations, int ifDepth, int variables) {
+        if (variables < 4) {
+            throw new IllegalArgumentException("At least 4 variables are needed, got " + variables);
+        }
+
+        this.declarations = declarations;
+        this.ifDepth = ifDepth;
+        this.variables = variables;
+    }
+
+    public String generate() {
+        StringBuilder source = new StringBuilder(declarations * 32);
+
+        // Globals cycle through pixel, percentage, color and bool
+        for (int i = 0; i < variables; i++) {
+            source.append(variableName(i)).append(" := ");
+            switch (i % 4) {
+                case 0:
+                    source.append(10 + i).append("px");
+                    break;
+                case 1:
+                    source.append(i % 100).append('%');
+                    break;
+                case 2:
+                    source.append(color(i));
+                    break;
+                default:
+                    source.append(i % 8 == 3 ? "TRUE" : "FALSE");
+                    break;
+            }
+            source.append(";\n");
+        }
+
+        int written = 0;
+        int rule = 0;
+        while (written < declarations) {
+            int count = Math.min(DECLARATIONS_PER_RULE, declarations - written);
+            writeStylerule(source, rule++, count);
+            written += count;
+        }
+
+        return source.toString();
+    }
+
+    private void writeStylerule(StringBuilder source, int rule, int count) {
+        switch (rule % 3) {
+            case 0:
+                source.append(".rule").append(rule);
+                break;
+            case 1:
+                source.append("#rule").append(rule);
+                break;
+            default:
+                source.append("p");
+                break;
+        }
+        source.append(" {\n");
+
+        // Nested if clauses take one declaration per level, the innermost one has an else
+        int nested = Math.min(ifDepth, Math.max(0, count - 2));
+        int plain = nested > 0 ? count - nested - 1 : count;
+
+        int n = rule * DECLARATIONS_PER_RULE;
+        for (int i = 0; i < plain; i++) {
+            writeDeclaration(source, n++, 1);
+        }
+
+        for (int level = 0; level < nested; level++) {
+            indent(source, level + 1).append("if[").append(variableOfType(n + level, 3)).append("] {\n");
+            writeDeclaration(source, n + level, level + 2);
+        }
+        for (int level = nested - 1; level >= 0; level--) {
+            indent(source, level + 1).append('}');
+            if (level == nested - 1) {
+                source.append(" else {\n");
+                writeDeclaration(source, n + level + 1, level + 2);
+                indent(source, level + 1).append('}');
+            }
+            source.append('\n');
+        }
+
+        source.append("}\n\n");
+    }
+
+    private void writeDeclaration(StringBuilder source, int n, int depth) {
+        indent(source, depth);
+        switch (n % 4) {
+            case 0:
+                source.append("width: ").append(variableOfType(n, 0)).append(" + 2 * ").append(n % 50).append("px;\n");
+                break;
+            case 1:
+                source.append("height: ").append(variableOfType(n, 1)).append(" - 5%;\n");
+                break;
+            case 2:
+                source.append("color: ").append(variableOfType(n, 2)).append(";\n");
+                break;
+            default:
+                source.append("background-color: ").append(color(n)).append(";\n");
+                break;
+        }
+    }
+
+    // Picks one of the globals of the given type (index modulo 4)
+    private String variableOfType(int n, int type) {
+        int ofType = (variables - type + 3) / 4;
+        return variableName((n % ofType) * 4 + type);
+    }
+
+    private static String variableName(int i) {
+        return "Var" + i;
+    }
+
+    private static String color(int n) {
+        return String.format("#%06x", (n * 2654435761L) & 0xffffffL);
+    }
+
+    private static StringBuilder indent(StringBuilder source, int depth) {
+        for (int i = 0; i < depth; i++) {
+            source.append("  ");
+        }
+        return source;
+    }
+}
@@ -0,0 +1,113 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.generator.CompiledStylesheet;
+import nl.han.ica.icss.generator.StylesheetProgram;
+import nl.han.ica.icss.generator.Variables;
+import nl.han.ica.icss.variables.ThemeCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles one stylesheet for a number of themes that each override a color and a bool global.
+ * The staged variant does what was needed before the ThemeCompiler: put the values in the source
+ * and run every stage for every theme. The program and compiled variants render every theme
+ * with a StylesheetProgram and a CompiledStylesheet, on the calling thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ThemeBenchmark {
+    // The first color and bool globals of the synthetic stylesheets
+    private static final String COLOR = "Var2";
+    private static final String BOOL = "Var3";
+
+    @Param({"64"})
+    public int themes;
+
+    @Param({"1", "8"})
+    public int threads;
+
+    private List<Map<String, Literal>> overrides;
+    private List<String> sources;
+    private ThemeCompiler compiler;
+    private StylesheetProgram program;
+    private List<Variables> variables;
+    private CompiledStylesheet compiled;
+    private List<Variables> compiledVariables;
+
+    @Setup
+    public void setup(SourceState state) {
+        if (!state.input.startsWith("synthetic")) {
+            throw new IllegalStateException("ThemeBenchmark needs a synthetic input");
+        }
+
+        program = new StylesheetProgram(state.parseAndCheck().getAST());
+        overrides = new ArrayList<>();
+        sources = new ArrayList<>();
+        variables = new ArrayList<>();
+        compiled = CompiledStylesheet.compile(state.parse().getAST());
+        compiledVariables = new ArrayList<>();
+        for (int i = 0; i < themes; i++) {
+            String color = String.format("#%06x", i * 40503);
+            boolean bool = i % 2 == 0;
+            overrides.add(Map.of(COLOR, new ColorLiteral(color), BOOL, new BoolLiteral(bool)));
+            variables.add(program.newVariables().set(COLOR, new ColorLiteral(color)).set(BOOL, new BoolLiteral(bool)));
+            compiledVariables.add(compiled.newVariables().set(COLOR, new ColorLiteral(color)).set(BOOL, new BoolLiteral(bool)));
+            sources.add(state.source.replaceFirst(COLOR + " := [^;]*;", COLOR + " := " + color + ";")
+                    .replaceFirst(BOOL + " := [^;]*;", BOOL + " := " + (bool ? "TRUE" : "FALSE") + ";"));
+        }
+
+        compiler = new ThemeCompiler(state.parseAndCheck().getAST(), threads);
+    }
+
+    @TearDown
+    public void close() {
+        compiler.close();
+    }
+
+    @Benchmark
+    public List<String> staged() {
+        List<String> css = new ArrayList<>();
+        for (String source : sources) {
+            Pipeline pipeline = new Pipeline();
+            pipeline.parseString(source);
+            pipeline.check();
+            pipeline.transform();
+            css.add(pipeline.generate());
+        }
+        return css;
+    }
+
+    @Benchmark
+    public List<String> themeCompiler() {
+        return compiler.compile(overrides);
+    }
+
+    @Benchmark
+    public List<String> program() {
+        List<String> css = new ArrayList<>();
+        for (Variables theme : variables) {
+            css.add(program.render(theme));
+        }
+        return css;
+    }
+
+    @Benchmark
+    public List<String> compiled() {
+        List<String> css = new ArrayList<>();
+        for (Variables theme : compiledVariables) {
+            css.add(compiled.render(theme));
+        }
+        return css;
+    }
+}
@@ -0,0 +1,62 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.SemanticError;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generic tree walks on the AST: error collection, structural equality and toString.
+ * Run with -prof gc to see the allocation rate of the child iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TreeWalkBenchmark {
+
+    private AST ast;
+    private AST copy;
+    // Same as the source except for the last declaration
+    private AST different;
+
+    @Setup
+    public void setup(SourceState state) {
+        ast = state.parseAndCheck().getAST();
+        copy = state.parse().getAST();
+
+        int last = state.source.lastIndexOf(';', state.source.lastIndexOf('}'));
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(state.source.substring(0, last) + "; width: 1px" + state.source.substring(last));
+        different = pipeline.getAST();
+    }
+
+    @Benchmark
+    public ArrayList<SemanticError> getErrors() {
+        return ast.getErrors();
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return ast.equals(copy);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        return ast.equals(different);
+    }
+
+    @Benchmark
+    public int hashCodeTree() {
+        return ast.hashCode();
+    }
+
+    @Benchmark
+    public String toStringTree() {
+        return ast.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.variables.LiveStylesheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A theme change: one global color variable gets another value and the CSS is generated again.
+ * With the dependency graph only the rules that read the color are generated, the full run
+ * generates every rule. Every invocation switches between two colors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class VariableChangeBenchmark {
+    // The first color global of the synthetic stylesheets
+    private static final String VARIABLE = "Var2";
+
+    private final ColorLiteral[] colors = {new ColorLiteral("#123456"), new ColorLiteral("#654321")};
+    private int next = 0;
+
+    private AST ast;
+    private LiveStylesheet live;
+
+    @Setup
+    public void setup(SourceState state) {
+        ast = state.parseAndCheck().getAST();
+        live = new LiveStylesheet(ast);
+        live.generate();
+    }
+
+    private ColorLiteral nextColor() {
+        next ^= 1;
+        return colors[next];
+    }
+
+    @Benchmark
+    public String full() {
+        LiveStylesheet fresh = new LiveStylesheet(ast);
+        fresh.setVariable(VARIABLE, nextColor());
+        return fresh.generate();
+    }
+
+    @Benchmark
+    public String live() {
+        live.setVariable(VARIABLE, nextColor());
+        return live.generate();
+    }
+}
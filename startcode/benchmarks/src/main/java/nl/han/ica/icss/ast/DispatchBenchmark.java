@@ -0,0 +1,188 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.SourceState;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-node cost of picking the handler for a node: an instanceof ladder like the passes used
+ * to have versus the double dispatch of ASTVisitor. Runs over the first nodes of the input in
+ * pre-order, so the mix of node types is the same as in a real pass.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+    private static final int NODES = 1024;
+
+    private final ASTNode[] nodes = new ASTNode[NODES];
+
+    private final ASTVisitor<Integer, Void> visitor = new ASTVisitor<>() {
+        @Override
+        public Integer visitNode(ASTNode node, Void context) {
+            return 0;
+        }
+
+        @Override
+        public Integer visitStylesheet(Stylesheet node, Void context) {
+            return 1;
+        }
+
+        @Override
+        public Integer visitStylerule(Stylerule node, Void context) {
+            return 2;
+        }
+
+        @Override
+        public Integer visitAddOperation(AddOperation node, Void context) {
+            return 3;
+        }
+
+        @Override
+        public Integer visitSubtractOperation(SubtractOperation node, Void context) {
+            return 4;
+        }
+
+        @Override
+        public Integer visitMultiplyOperation(MultiplyOperation node, Void context) {
+            return 5;
+        }
+
+        @Override
+        public Integer visitDeclaration(Declaration node, Void context) {
+            return 6;
+        }
+
+        @Override
+        public Integer visitVariableAssignment(VariableAssignment node, Void context) {
+            return 7;
+        }
+
+        @Override
+        public Integer visitVariableReference(VariableReference node, Void context) {
+            return 8;
+        }
+
+        @Override
+        public Integer visitIfClause(IfClause node, Void context) {
+            return 9;
+        }
+
+        @Override
+        public Integer visitElseClause(ElseClause node, Void context) {
+            return 10;
+        }
+
+        @Override
+        public Integer visitPixelLiteral(PixelLiteral node, Void context) {
+            return 11;
+        }
+
+        @Override
+        public Integer visitPercentageLiteral(PercentageLiteral node, Void context) {
+            return 12;
+        }
+
+        @Override
+        public Integer visitScalarLiteral(ScalarLiteral node, Void context) {
+            return 13;
+        }
+
+        @Override
+        public Integer visitColorLiteral(ColorLiteral node, Void context) {
+            return 14;
+        }
+
+        @Override
+        public Integer visitBoolLiteral(BoolLiteral node, Void context) {
+            return 15;
+        }
+    };
+
+    @Setup
+    public void setup(SourceState state) {
+        List<ASTNode> preOrder = new ArrayList<>();
+        collect(state.parse().getAST().root, preOrder);
+
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = preOrder.get(i % preOrder.size());
+        }
+    }
+
+    private static void collect(ASTNode node, List<ASTNode> nodes) {
+        if (nodes.size() >= NODES) {
+            return;
+        }
+
+        nodes.add(node);
+        for (int i = 0; i < node.childCount(); i++) {
+            collect(node.childAt(i), nodes);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public int instanceofLadder() {
+        int sum = 0;
+        for (ASTNode node : nodes) {
+            sum += ladder(node);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public int visitor() {
+        int sum = 0;
+        for (ASTNode node : nodes) {
+            sum += node.accept(visitor, null);
+        }
+        return sum;
+    }
+
+    // Same order of tests as the old Checker.checkNode and getExpressionType
+    private static int ladder(ASTNode node) {
+        if (node instanceof Stylesheet) {
+            return 1;
+        } else if (node instanceof Stylerule) {
+            return 2;
+        } else if (node instanceof AddOperation) {
+            return 3;
+        } else if (node instanceof SubtractOperation) {
+            return 4;
+        } else if (node instanceof MultiplyOperation) {
+            return 5;
+        } else if (node instanceof Declaration) {
+            return 6;
+        } else if (node instanceof VariableAssignment) {
+            return 7;
+        } else if (node instanceof VariableReference) {
+            return 8;
+        } else if (node instanceof IfClause) {
+            return 9;
+        } else if (node instanceof ElseClause) {
+            return 10;
+        } else if (node instanceof PixelLiteral) {
+            return 11;
+        } else if (node instanceof PercentageLiteral) {
+            return 12;
+        } else if (node instanceof ScalarLiteral) {
+            return 13;
+        } else if (node instanceof ColorLiteral) {
+            return 14;
+        } else if (node instanceof BoolLiteral) {
+            return 15;
+        }
+        return 0;
+    }
+}
@@ -1,22 +1,40 @@
 package nl.han.ica.datastructures;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 public class HANLinkedList<T> implements IHANLinkedList<T> {
     LinkedListNode<T> first = null;
+    // Keep track of the last node and the size so appending and counting don't walk the whole chain
+    LinkedListNode<T> last = null;
+    private int size = 0;
 
     // Just to stop me being confused,
     // this function adds
     @Override
     public void addFirst(T value) {
-        // If the first node doesn't exist yet create it
-        if (first == null) {
-            first = new LinkedListNode<>(value);
-            return;
-        }
-
-        // Else make a new node and switch the first and new node
         LinkedListNode<T> node = new LinkedListNode<>(value);
         node.setNext(first);
         first = node;
+
+        // If the list was empty the new node is also the last one
+        if (last == null) {
+            last = node;
+        }
+        size++;
+    }
+
+    @Override
+    public void addLast(T value) {
+        LinkedListNode<T> node = new LinkedListNode<>(value);
+
+        if (last == null) {
+            first = node;
+        } else {
+            last.setNext(node);
+        }
+        last = node;
+        size++;
     }
 
     @Override
@@ -24,72 +42,82 @@ public class HANLinkedList<T> implements IHANLinkedList<T> {
         // Just remove the first node and everything cascades and dies
         // all hail the garbage collector
         first = null;
+        last = null;
+        size = 0;
     }
 
     @Override
     public void insert(int index, T value) {
-        LinkedListNode<T> newNode = new LinkedListNode<>(value);
-        LinkedListNode<T> current = first;
-
-        if (index > getSize()) {
+        if (index < 0 || index > size) {
             throw new IndexOutOfBoundsException(index);
         }
 
-        if(first == null) {
-            first = newNode;
+        if (index == 0) {
+            addFirst(value);
             return;
         }
 
-        if (index == 0) {
-            addFirst(value);
+        if (index == size) {
+            addLast(value);
             return;
         }
 
+        LinkedListNode<T> current = first;
         for (int i = 0; i < index - 1; i++) {
             current = current.getNext();
         }
 
+        LinkedListNode<T> newNode = new LinkedListNode<>(value);
         newNode.setNext(current.getNext());
         current.setNext(newNode);
+        size++;
     }
 
     @Override
     public void delete(int pos) {
+        // Index OOB
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException(pos);
+        }
+
         // If removing first node it's easy
         if (pos == 0) {
             removeFirst();
             return;
         }
 
-        // Index OOB
-        if (pos > getSize()) {
-            throw new IndexOutOfBoundsException(pos);
-        }
-
-        int temp = 0;
-        LinkedListNode<T> current = first;
-
-        while (temp < pos) {
-            current = current.getNext();
-            temp++;
+        // Walk to the node before the one to remove
+        LinkedListNode<T> previous = first;
+        for (int i = 0; i < pos - 1; i++) {
+            previous = previous.getNext();
         }
 
         // Set the next of the node before the one to remove
         // to one node after the node to be removed
         // effectively jumping over it. Let garbage collection handle the rest :D
-        current.setNext(current.getNext());
+        LinkedListNode<T> removed = previous.getNext();
+        previous.setNext(removed.getNext());
+
+        if (removed == last) {
+            last = previous;
+        }
+        size--;
     }
 
     @Override
     public T get(int pos) {
-        LinkedListNode<T> temp = first;
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException(pos);
+        }
 
-        for (int i = 0; i < pos; i++) {
-            temp = temp.getNext();
+        // The last node is a common lookup (queues), so don't walk for it
+        if (pos == size - 1) {
+            return last.getValue();
         }
 
-        if (temp == null) {
-            throw new IndexOutOfBoundsException(pos);
+        LinkedListNode<T> temp = first;
+        for (int i = 0; i < pos; i++) {
+            temp = temp.getNext();
         }
 
         return temp.getValue();
@@ -98,6 +126,11 @@ public class HANLinkedList<T> implements IHANLinkedList<T> {
     @Override
     public void removeFirst() {
         first = first.getNext();
+        size--;
+
+        if (first == null) {
+            last = null;
+        }
     }
 
     @Override
@@ -107,18 +140,29 @@ public class HANLinkedList<T> implements IHANLinkedList<T> {
 
     @Override
     public int getSize() {
-        if (first == null) {
-            return 0;
-        }
-
-        int count = 1;
-        LinkedListNode<T> currentNode = first;
-
-        while (currentNode.getNext() != null) {
-            currentNode = currentNode.getNext();
-            count++;
-        }
+        return size;
+    }
 
-        return count;
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private LinkedListNode<T> next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+
+                T value = next.getValue();
+                next = next.getNext();
+                return value;
+            }
+        };
     }
 }
@@ -15,7 +15,7 @@ public class HANQueue<T> implements IHANQueue<T> {
 
     @Override
     public void enqueue(T value) {
-        buffer.insert(buffer.getSize(), value);
+        buffer.addLast(value);
     }
 
     @Override
@@ -1,12 +1,18 @@
 package nl.han.ica.datastructures;
 
-public interface IHANLinkedList<T> {
+public interface IHANLinkedList<T> extends Iterable<T> {
     /**
      * Adds value to the front of the list
      * @param value generic value to be added
      */
     void addFirst(T value);
 
+    /**
+     * Adds value to the back of the list in O(1) time
+     * @param value generic value to be added
+     */
+    void addLast(T value);
+
     /**
      * Clears list. Size equals 0 afterwards
      */
@@ -44,7 +50,7 @@ public interface IHANLinkedList<T> {
     T getFirst();
 
     /**
-     * Determines size of the list, equals the number of stored items but not the header node
+     * Determines size of the list in O(1) time, equals the number of stored items but not the header node
      * @return number of items in list
      */
     int getSize();
@@ -1,35 +1,143 @@
 package nl.han.ica.datastructures;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
+/**
+ * Scoped symbol table backed by one flat open-addressed table.
+ *
+ * Every key gets a dense id the first time it is seen. The table only holds the innermost
+ * value per id, when a scope shadows or adds a variable the previous value is written to an
+ * undo log. Popping a scope replays that part of the log and truncates it, so there are no maps
+ * per scope and a lookup is a single probe no matter how deep the scopes are nested.
+ */
 public class SymbolTable<K, V> {
-    private IHANLinkedList<HashMap<K, V>> scopes = new HANLinkedList<>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Open-addressed hash table, holds id + 1 of the key in that slot or 0 when empty
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    // Keys and their current (innermost) values, indexed by id
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int keyCount = 0;
+
+    // Undo log: the id that was overwritten and the value it had before
+    private int[] undoIds = new int[INITIAL_CAPACITY];
+    private Object[] undoValues = new Object[INITIAL_CAPACITY];
+    private int undoSize = 0;
+
+    // Length of the undo log at the moment every scope was pushed
+    private int[] scopeMarks = new int[INITIAL_CAPACITY];
+    private int depth = 0;
 
     public void pushScope() {
-        scopes.addFirst(new HashMap<>());
+        if (depth == scopeMarks.length) {
+            scopeMarks = Arrays.copyOf(scopeMarks, depth * 2);
+        }
+        scopeMarks[depth++] = undoSize;
     }
 
     public void popScope() {
-        scopes.removeFirst();
+        if (depth == 0) {
+            throw new IllegalStateException("No scope to pop");
+        }
+
+        // Restore everything this scope overwrote, newest first
+        int mark = scopeMarks[--depth];
+        while (undoSize > mark) {
+            undoSize--;
+            values[undoIds[undoSize]] = undoValues[undoSize];
+            undoValues[undoSize] = null;
+        }
     }
 
     public void putVariable(K key, V value) {
-        scopes.getFirst().put(key, value);
+        if (depth == 0) {
+            throw new IllegalStateException("No scope to put variable " + key + " in");
+        }
+
+        int id = idOf(key, true);
+
+        if (undoSize == undoIds.length) {
+            undoIds = Arrays.copyOf(undoIds, undoSize * 2);
+            undoValues = Arrays.copyOf(undoValues, undoSize * 2);
+        }
+        undoIds[undoSize] = id;
+        undoValues[undoSize] = values[id];
+        undoSize++;
+
+        values[id] = value;
     }
 
+    @SuppressWarnings("unchecked")
     public V getVariable(K key) {
-        for (int i = 0; i < scopes.getSize(); i++) {
-            HashMap symbolMap = scopes.get(i);
-            V result = (V) symbolMap.get(key);
-            if (result != null) {
-                return result;
-            }
+        int id = idOf(key, false);
+        if (id < 0) {
+            return null;
         }
 
-        return null;
+        return (V) values[id];
     }
 
     public int getSize() {
-        return scopes.getSize();
+        return depth;
+    }
+
+    // Finds the id of a key, optionally giving it a new id when it wasn't seen before
+    private int idOf(K key, boolean create) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            Object existing = keys[id];
+            // Identity first, interned keys never need equals
+            if (existing == key || existing.equals(key)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (!create) {
+            return -1;
+        }
+
+        int id = keyCount++;
+        if (id == keys.length) {
+            keys = Arrays.copyOf(keys, id * 2);
+            values = Arrays.copyOf(values, id * 2);
+        }
+        keys[id] = key;
+        table[slot] = id + 1;
+
+        // Keep the table at most half full so probe chains stay short
+        if (keyCount * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+
+        return id;
+    }
+
+    // Ids don't change on a rehash, only their slots do, so the undo log stays valid
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+
+        for (int id = 0; id < keyCount; id++) {
+            int slot = hash(keys[id]) & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id + 1;
+        }
+
+        table = newTable;
+    }
+
+    private static int hash(Object key) {
+        // Names like Var1, Var2 hash to neighbouring values, scramble them so they don't
+        // end up in one long probe chain. The table index only uses the low bits.
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 }
@@ -0,0 +1,364 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.TopLevelRegions;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pipeline for the editor that only redoes the work for the parts of the text that changed.
+ *
+ * The text is split in top-level variable assignments and style rules (see TopLevelRegions).
+ * A region whose text is the same as in the previous parse keeps its AST. A style rule is only
+ * checked, transformed and generated again when its text changed or when one of the global
+ * variables it uses got another type (for check) or value (for transform). The global variable
+ * assignments themselves are small, they are redone as a whole when any of them changed.
+ *
+ * When the text can't be split, or a region has a syntax error, the whole text is parsed like
+ * the Pipeline does, so the errors are the same, and the other stages run on the whole tree.
+ */
+public class IncrementalPipeline extends Pipeline {
+
+    private static class Region {
+        final String text;
+        int line;
+        // As parsed, the only thing that is changed on it are the errors set by check
+        ASTNode node;
+        // Names of all variables used or assigned in the region
+        String[] variables;
+
+        boolean checked = false;
+        ExpressionType[] checkedWith;
+        List<String> errors;
+
+        // The rule transformed with the values in transformedWith, shares unchanged nodes with node
+        Stylerule transformed;
+        Literal[] transformedWith;
+        String css;
+
+        Region(String text, int line) {
+            this.text = text;
+            this.line = line;
+        }
+    }
+
+    // The regions of the last parse, null when it fell back to parsing the whole text
+    private List<Region> regions;
+    private Map<String, Region> regionsByText = new HashMap<>();
+
+    private List<String> checkedGlobals;
+    private Map<String, ExpressionType> globalTypes;
+    private List<String> globalErrors;
+
+    private List<String> transformedGlobals;
+    private List<VariableAssignment> transformedAssignments;
+    private Map<String, Literal> globalValues;
+
+    private final Generator generator = new Generator();
+
+    @Override
+    public void parseString(String input) {
+        errors.clear();
+        checked = transformed = false;
+
+        List<TopLevelRegions.Region> scanned = TopLevelRegions.scan(input);
+        if (scanned == null) {
+            parseWhole(input);
+            return;
+        }
+
+        List<Region> newRegions = new ArrayList<>(scanned.size());
+        Map<String, Region> newRegionsByText = new HashMap<>();
+        boolean seenStylerule = false;
+
+        for (TopLevelRegions.Region scannedRegion : scanned) {
+            String text = scannedRegion.text(input);
+            Region region = newRegionsByText.get(text);
+            if (region == null) {
+                region = regionsByText.get(text);
+            }
+
+            if (region == null || hasErrors(region)) {
+                region = new Region(text, scannedRegion.line);
+                if (!parseRegion(region)) {
+                    parseWhole(input);
+                    return;
+                }
+            }
+            region.line = scannedRegion.line;
+
+            // The grammar only allows variable assignments before the first style rule
+            if (region.node instanceof VariableAssignment && seenStylerule) {
+                parseWhole(input);
+                return;
+            }
+            seenStylerule |= region.node instanceof Stylerule;
+
+            newRegions.add(region);
+            newRegionsByText.put(text, region);
+        }
+
+        regions = newRegions;
+        regionsByText = newRegionsByText;
+        ast = assemble(false);
+        parsed = true;
+    }
+
+    @Override
+    public boolean check() {
+        if (regions == null) {
+            return super.check();
+        }
+
+        List<String> globals = globalTexts();
+        if (!globals.equals(checkedGlobals)) {
+            // Errors of an earlier check are still set on the nodes, so check fresh copies
+            List<VariableAssignment> assignments = new ArrayList<>();
+            for (Region region : regions) {
+                if (region.node instanceof VariableAssignment) {
+                    reparseRegion(region);
+                    assignments.add((VariableAssignment) region.node);
+                }
+            }
+
+            globalTypes = new Checker().checkVariableAssignments(assignments);
+            globalErrors = new ArrayList<>();
+            for (VariableAssignment assignment : assignments) {
+                globalErrors.addAll(collectErrors(assignment));
+            }
+            checkedGlobals = globals;
+        }
+
+        List<String> semanticErrors = new ArrayList<>(globalErrors);
+        for (Region region : regions) {
+            if (!(region.node instanceof Stylerule)) {
+                continue;
+            }
+
+            ExpressionType[] types = new ExpressionType[region.variables.length];
+            Map<String, ExpressionType> used = new HashMap<>();
+            for (int i = 0; i < types.length; i++) {
+                types[i] = globalTypes.get(region.variables[i]);
+                if (types[i] != null) {
+                    used.put(region.variables[i], types[i]);
+                }
+            }
+
+            if (!region.checked || !Arrays.equals(types, region.checkedWith)) {
+                if (region.checked) {
+                    reparseRegion(region);
+                }
+                new Checker().checkStylerule((Stylerule) region.node, used);
+                region.checked = true;
+                region.checkedWith = types;
+                region.errors = collectErrors(region.node);
+            }
+            semanticErrors.addAll(region.errors);
+        }
+
+        errors.addAll(semanticErrors);
+        ast = assemble(false);
+        checked = semanticErrors.isEmpty();
+        transformed = false;
+        return checked;
+    }
+
+    @Override
+    public void transform() {
+        if (regions == null) {
+            super.transform();
+            return;
+        }
+
+        List<String> globals = globalTexts();
+        if (!globals.equals(transformedGlobals)) {
+            List<VariableAssignment> assignments = new ArrayList<>();
+            for (Region region : regions) {
+                if (region.node instanceof VariableAssignment) {
+                    assignments.add((VariableAssignment) region.node);
+                }
+            }
+
+            transformedAssignments = new ArrayList<>();
+            globalValues = new Evaluator().evaluateVariableAssignments(assignments, transformedAssignments);
+            transformedGlobals = globals;
+        }
+
+        for (Region region : regions) {
+            if (!(region.node instanceof Stylerule)) {
+                continue;
+            }
+
+            Literal[] values = new Literal[region.variables.length];
+            Map<String, Literal> used = new HashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = globalValues.get(region.variables[i]);
+                if (values[i] != null) {
+                    used.put(region.variables[i], values[i]);
+                }
+            }
+
+            if (region.transformed == null || !Arrays.equals(values, region.transformedWith)) {
+                region.transformed = new Evaluator().evaluateStylerule((Stylerule) region.node, used);
+                region.transformedWith = values;
+                region.css = null;
+            }
+        }
+
+        ast = assemble(true);
+        transformed = errors.isEmpty();
+    }
+
+    @Override
+    public String generate() {
+        return Generator.toString(this::generate);
+    }
+
+    /**
+     * After transform only the CSS of the rules that were transformed again is generated,
+     * the rest comes from the previous run.
+     */
+    @Override
+    public void generate(Appendable out) throws IOException {
+        if (regions == null || !transformed) {
+            super.generate(out);
+            return;
+        }
+
+        for (Region region : regions) {
+            if (region.transformed == null) {
+                continue;
+            }
+
+            if (region.css == null) {
+                Stylesheet single = new Stylesheet();
+                single.addChild(region.transformed);
+                region.css = generator.generate(new AST(single));
+            }
+            out.append(region.css);
+        }
+    }
+
+    // Files are parsed as a whole, the next parseString starts over
+    @Override
+    public void parseFile(Path file) throws IOException {
+        forgetRegions();
+        super.parseFile(file);
+    }
+
+    private void parseWhole(String input) {
+        forgetRegions();
+        super.parseString(input);
+    }
+
+    private void forgetRegions() {
+        regions = null;
+        regionsByText = new HashMap<>();
+        checkedGlobals = null;
+        transformedGlobals = null;
+    }
+
+    // Parses the text of a region on its own, false when it isn't one variable assignment or style rule
+    private boolean parseRegion(Region region) {
+        ASTNode node = parseCopy(region);
+        if (node == null) {
+            return false;
+        }
+
+        region.node = node;
+        region.variables = collectVariables(node);
+        return true;
+    }
+
+    // Replaces the node of an unchanged region with a new one without errors
+    private void reparseRegion(Region region) {
+        region.node = parseCopy(region);
+        region.checked = false;
+    }
+
+    private ASTNode parseCopy(Region region) {
+        int errorCount = errors.size();
+        AST parsed = parse(CharStreams.fromString(region.text), region.line);
+
+        if (errors.size() != errorCount || parsed.root.body.size() != 1) {
+            return null;
+        }
+        return parsed.root.body.get(0);
+    }
+
+    private static boolean hasErrors(Region region) {
+        return region.errors != null && !region.errors.isEmpty();
+    }
+
+    private List<String> globalTexts() {
+        List<String> texts = new ArrayList<>();
+        for (Region region : regions) {
+            if (region.node instanceof VariableAssignment) {
+                texts.add(region.text);
+            }
+        }
+        return texts;
+    }
+
+    private AST assemble(boolean transformedRules) {
+        Stylesheet stylesheet = new Stylesheet();
+        if (transformedRules) {
+            for (VariableAssignment assignment : transformedAssignments) {
+                stylesheet.addChild(assignment);
+            }
+        }
+
+        for (Region region : regions) {
+            if (!transformedRules) {
+                stylesheet.addChild(region.node);
+            } else if (region.transformed != null) {
+                stylesheet.addChild(region.transformed);
+            }
+        }
+        return new AST(stylesheet);
+    }
+
+    private static String[] collectVariables(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        collectVariables(node, names);
+        return names.stream().distinct().toArray(String[]::new);
+    }
+
+    private static void collectVariables(ASTNode node, List<String> names) {
+        if (node instanceof VariableReference) {
+            names.add(((VariableReference) node).name);
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            collectVariables(node.childAt(i), names);
+        }
+    }
+
+    // Errors in the same order as AST.getErrors
+    private static List<String> collectErrors(ASTNode node) {
+        List<String> found = new ArrayList<>();
+        collectErrors(node, found);
+        return found;
+    }
+
+    private static void collectErrors(ASTNode node, List<String> found) {
+        SemanticError error = node.getError();
+        if (error != null) {
+            found.add(error.toString());
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            collectErrors(node.childAt(i), found);
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.Stylesheet;
 import nl.han.ica.icss.checker.Checker;
 import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.FusedGenerator;
 import nl.han.ica.icss.generator.Generator;
 import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ASTParser;
+import nl.han.ica.icss.parser.ByteLexer;
 import nl.han.ica.icss.parser.ICSSLexer;
 import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.MappedCharStream;
+import nl.han.ica.icss.parser.PackedTokenStream;
+import nl.han.ica.icss.parser.TopLevelRegions;
 import nl.han.ica.icss.transforms.Evaluator;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
@@ -15,17 +24,35 @@ import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class Pipeline implements ANTLRErrorListener {
 
-    private AST ast;
-    private boolean parsed = false;
-    private boolean checked = false;
-    private boolean transformed = false;
-    private List<String> errors;
+    protected AST ast;
+    protected boolean parsed = false;
+    protected boolean checked = false;
+    protected boolean transformed = false;
+    protected List<String> errors;
+
+    // Kept so its output buffer is reused between files
+    private final Generator generator = new Generator();
+    private FusedGenerator fusedGenerator;
+
+    private boolean directParsing = false;
+    private int parsingThreads = 1;
+
+    // Pools for parseParallel by number of threads. They are never shut down, their workers are
+    // daemon threads that stop when they have been idle for a while.
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> PARSING_POOLS = new ConcurrentHashMap<>();
 
     public Pipeline() {
         errors = new ArrayList<>();
@@ -47,16 +74,63 @@ public class Pipeline implements ANTLRErrorListener {
         return transformed;
     }
 
+    /**
+     * Lets parseString build the AST straight from the tokens with the ASTParser, instead of
+     * building an Antlr parse tree and walking it with the ASTListener. The direct parser
+     * stops at the first syntax error, the Antlr parser recovers and reports them all.
+     */
+    public void setDirectParsing(boolean directParsing) {
+        this.directParsing = directParsing;
+    }
+
+    /**
+     * Lets parseString parse the style rules on this many threads, see parseParallel. It only pays
+     * off for large stylesheets. The Pipelines that ask for the same number of threads share one
+     * pool, and a Pipeline that is used on a ForkJoinPool parses on that pool instead.
+     */
+    public void setParsingThreads(int threads) {
+        this.parsingThreads = threads;
+    }
+
     public void parseString(String input) {
+        errors.clear();
+        this.ast = parsingThreads > 1 ? parseParallel(input) : parse(CharStreams.fromString(input), 1);
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+
+    /**
+     * Parses the UTF-8 file through a memory mapping, without reading it into a String first.
+     * Meant for large generated stylesheets: the ByteLexer lexes the mapped bytes, which makes the
+     * same tokens as the ICSSLexer, and the Antlr parser reads them from a PackedTokenStream.
+     */
+    public void parseFile(Path file) throws IOException {
+        ByteLexer lexer = new ByteLexer(MappedCharStream.open(file), this);
+        errors.clear();
+        this.ast = directParsing ? parseDirect(lexer) : parseTree(lexer);
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+
+    /**
+     * Parses the input into a new AST, syntax errors are added to the errors.
+     * @param firstLine line number of the first line of the input, when it is part of a larger text
+     */
+    protected AST parse(CharStream inputStream, int firstLine) {
 
         //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
         ICSSLexer lexer = new ICSSLexer(inputStream);
+        lexer.setLine(firstLine);
         lexer.removeErrorListeners();
         lexer.addErrorListener(this);
-        errors.clear();
+
+        return directParsing ? parseDirect(lexer) : parseTree(lexer);
+    }
+
+    private AST parseTree(TokenSource lexer) {
         try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            // Keeps the tokens as ints instead of a CommonToken each
+            PackedTokenStream tokens = new PackedTokenStream(lexer);
 
             //Parse (with Antlr's generated parser)
             ICSSParser parser = new ICSSParser(tokens);
@@ -70,19 +144,148 @@ public class Pipeline implements ANTLRErrorListener {
             ParseTreeWalker walker = new ParseTreeWalker();
             walker.walk(listener, parseTree);
 
-            this.ast = listener.getAST();
+            return listener.getAST();
 
         } catch (RecognitionException e) {
-            this.ast = new AST();
             errors.add(e.getMessage());
+            return new AST();
 
         } catch (ParseCancellationException e) {
-            this.ast = new AST();
             errors.add("Syntax error");
+            return new AST();
         }
-        parsed = errors.isEmpty();
-        checked = transformed = false;
     }
+
+    /**
+     * Parses the global variable assignments at the start of the input on this thread, then every
+     * style rule after them on its own on the parsing threads, and puts the nodes together in
+     * source order. TopLevelRegions finds the rules, each is parsed with the line number it has in
+     * the input. A rule with a syntax error is parsed again on this thread, so its errors are
+     * reported here in source order, and the rest of the input isn't parsed again. Only when the
+     * input can't be split like that, or a variable assignment comes after a rule, the input is
+     * parsed as a whole, so the errors are the same as without parallel parsing.
+     */
+    private AST parseParallel(String input) {
+        List<TopLevelRegions.Region> regions = TopLevelRegions.scan(input);
+        if (regions == null) {
+            return parse(CharStreams.fromString(input), 1);
+        }
+
+        // Variable assignments end at a semicolon, style rules at a brace
+        int globals = 0;
+        while (globals < regions.size() && endsAssignment(input, regions.get(globals))) {
+            globals++;
+        }
+        for (int i = globals; i < regions.size(); i++) {
+            if (endsAssignment(input, regions.get(i))) {
+                return parse(CharStreams.fromString(input), 1);
+            }
+        }
+
+        Stylesheet stylesheet = new Stylesheet();
+        if (globals > 0) {
+            TopLevelRegions.Region first = regions.get(0);
+            AST prelude = parse(CharStreams.fromString(input.substring(first.start, regions.get(globals - 1).end)), first.line);
+            if (directParsing && prelude.root.body.isEmpty()) {
+                // The direct parser stopped at an error, like it does on the whole input
+                return prelude;
+            }
+            for (ASTNode node : prelude.root.body) {
+                stylesheet.addChild(node);
+            }
+        }
+
+        List<TopLevelRegions.Region> ruleRegions = regions.subList(globals, regions.size());
+        Stylerule[] stylerules = new Stylerule[ruleRegions.size()];
+        ThreadLocal<Pipeline> pipelines = ThreadLocal.withInitial(() -> {
+            Pipeline pipeline = new Pipeline();
+            pipeline.setDirectParsing(directParsing);
+            return pipeline;
+        });
+        StyleruleTask task = new StyleruleTask(input, ruleRegions, stylerules, pipelines, 0, stylerules.length);
+        if (ForkJoinTask.inForkJoinPool()) {
+            // Already on a worker of the caller's pool, the rules are parsed on that pool
+            task.invoke();
+        } else {
+            PARSING_POOLS.computeIfAbsent(parsingThreads, ForkJoinPool::new).invoke(task);
+        }
+
+        for (int i = 0; i < stylerules.length; i++) {
+            if (stylerules[i] != null) {
+                stylesheet.addChild(stylerules[i]);
+                continue;
+            }
+            TopLevelRegions.Region region = ruleRegions.get(i);
+            AST parsed = parse(CharStreams.fromString(region.text(input)), region.line);
+            if (directParsing && parsed.root.body.isEmpty()) {
+                // The direct parser stopped at the error, like it does on the whole input
+                return parsed;
+            }
+            for (ASTNode node : parsed.root.body) {
+                stylesheet.addChild(node);
+            }
+        }
+        return new AST(stylesheet);
+    }
+
+    private static boolean endsAssignment(String input, TopLevelRegions.Region region) {
+        return input.charAt(region.end - 1) == ';';
+    }
+
+    // Splits the style rules in halves until a few are left, idle workers steal the other halves
+    private static class StyleruleTask extends RecursiveAction {
+        private static final int RULES_PER_TASK = 64;
+
+        private final String input;
+        private final List<TopLevelRegions.Region> regions;
+        // Null for a region that isn't one style rule without syntax errors, it is parsed again
+        private final Stylerule[] stylerules;
+        private final ThreadLocal<Pipeline> pipelines;
+        private final int from;
+        private final int to;
+
+        StyleruleTask(String input, List<TopLevelRegions.Region> regions, Stylerule[] stylerules,
+                      ThreadLocal<Pipeline> pipelines, int from, int to) {
+            this.input = input;
+            this.regions = regions;
+            this.stylerules = stylerules;
+            this.pipelines = pipelines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > RULES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new StyleruleTask(input, regions, stylerules, pipelines, from, middle),
+                        new StyleruleTask(input, regions, stylerules, pipelines, middle, to));
+                return;
+            }
+
+            Pipeline pipeline = pipelines.get();
+            for (int i = from; i < to; i++) {
+                TopLevelRegions.Region region = regions.get(i);
+                pipeline.errors.clear();
+                AST parsed = pipeline.parse(CharStreams.fromString(region.text(input)), region.line);
+
+                List<ASTNode> body = parsed.root.body;
+                if (pipeline.errors.isEmpty() && body.size() == 1 && body.get(0) instanceof Stylerule) {
+                    stylerules[i] = (Stylerule) body.get(0);
+                }
+            }
+        }
+    }
+
+    private AST parseDirect(TokenSource lexer) {
+        try {
+            return new ASTParser(lexer, this).parse();
+        } catch (ParseCancellationException e) {
+            // The error was already reported to syntaxError
+            return new AST();
+        }
+    }
+
     public boolean check() {
             if(ast == null)
                 return false;
@@ -115,10 +318,52 @@ public class Pipeline implements ANTLRErrorListener {
         transformed = errors.isEmpty();
     }
     public String generate() {
-        Generator generator = new Generator();
         return generator.generate(ast);
     }
 
+    public void generate(Appendable out) throws IOException {
+        generator.generate(ast, out);
+    }
+
+    public void generate(WritableByteChannel channel) throws IOException {
+        generator.generate(ast, channel);
+    }
+
+    /**
+     * Checks, evaluates and generates in a single walk over the tree instead of check(), transform()
+     * and generate(). Meant for input that is known to be valid, the AST is left as it is.
+     * @return false when there were errors, the output is incomplete then
+     */
+    public boolean generateFused(Appendable out) throws IOException {
+        if (ast == null)
+            return false;
+
+        return fusedDone(fusedGenerator().generate(ast, out));
+    }
+
+    public boolean generateFused(WritableByteChannel channel) throws IOException {
+        if (ast == null)
+            return false;
+
+        return fusedDone(fusedGenerator().generate(ast, channel));
+    }
+
+    private FusedGenerator fusedGenerator() {
+        if (fusedGenerator == null) {
+            fusedGenerator = new FusedGenerator();
+        }
+        return fusedGenerator;
+    }
+
+    private boolean fusedDone(List<SemanticError> semanticErrors) {
+        for (SemanticError e : semanticErrors) {
+            errors.add(e.toString());
+        }
+
+        checked = semanticErrors.isEmpty();
+        return checked;
+    }
+
     //Catch ANTLR errors
     @Override
     public void reportAmbiguity(Parser arg0, DFA arg1, int arg2, int arg3,
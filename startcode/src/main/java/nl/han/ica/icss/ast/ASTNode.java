@@ -4,11 +4,19 @@ import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ASTNode {
 
     private SemanticError error = null;
 
+    // Counts the changes to nodes that had a hash, a hash that was cached before the last one may be stale
+    private static final AtomicLong MODIFICATIONS = new AtomicLong();
+
+    // Structural hash, 0 when it isn't known (yet), and the modification count it was computed at
+    private int hash = 0;
+    private long hashModification;
+
     /*
      This method is used in the GUI to create an appropriate label
      in the tree visualisation.
@@ -22,7 +30,21 @@ public class ASTNode {
      This method provides a unified interface.
      */
     public ArrayList<ASTNode> getChildren() {
-        return new ArrayList<>();
+        ArrayList<ASTNode> children = new ArrayList<>(childCount());
+        for (int i = 0; i < childCount(); i++) {
+            children.add(childAt(i));
+        }
+        return children;
+    }
+    /*
+     Indexed access to the same children as getChildren(), in the same order, but without
+     building a list. Passes that visit every node should iterate with these.
+     */
+    public int childCount() {
+        return 0;
+    }
+    public ASTNode childAt(int index) {
+        throw new IndexOutOfBoundsException(index);
     }
     /*
     By implementing this method in a subclass you can easily create AST nodes
@@ -38,6 +60,27 @@ public class ASTNode {
         return this;
     }
 
+    /*
+     Removes exactly the given node from a list of children. Nodes that are equal to it, but are
+     another object, stay. Returns false when the node isn't in the list.
+     */
+    public static boolean removeByIdentity(List<? extends ASTNode> nodes, ASTNode node) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node) {
+                nodes.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     Double dispatch for visitors, every node type calls its own visit method.
+     */
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitNode(this, context);
+    }
+
     public SemanticError getError() {
         return this.error;
     }
@@ -60,26 +103,70 @@ public class ASTNode {
 		builder.append("[");
 		builder.append(getNodeLabel());	
 		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
+		for(int i = 0; i < childCount(); i++) {
+			childAt(i).toString(builder);
+		}
 		builder.append("]");
 	}
 
+	/*
+	 Two nodes are equal when they are of the same class and their children are equal. Nodes
+	 with values of their own (literals, names, selectors) compare those as well.
+	 The hashes are compared first, so unequal trees are usually told apart without walking them.
+	 */
 	@Override
     public boolean equals(Object o) {
-        if(! (o instanceof ASTNode))
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        ASTNode other = (ASTNode) o;
+        if (hashCode() != other.hashCode())
             return false;
         //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
+        int count = this.childCount();
+        if(other.childCount() != count)
             return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        for(int i = 0; i < count; i++ ) {
+            if(!this.childAt(i).equals(other.childAt(i))) {
                 return false;
             }
         }
         return true;
     }
+
+	/*
+	 Hash over the class and the children, computed once and cached in the node. The children
+	 can only be changed through addChild, removeChild, the setters and the child lists, and a
+	 change to a node with a hash drops every cached hash, of this tree and of all others.
+	 A tree that is built and then only read computes its hashes once.
+	 */
+	@Override
+	public int hashCode() {
+		long modification = MODIFICATIONS.get();
+		int h = hash;
+		if (h == 0 || hashModification != modification) {
+			h = getClass().getName().hashCode();
+			for (int i = 0; i < childCount(); i++) {
+				h = 31 * h + childAt(i).hashCode();
+			}
+			// 0 means not computed
+			if (h == 0)
+				h = 1;
+			hash = h;
+			hashModification = modification;
+		}
+		return h;
+	}
+
+	/*
+	 Called before the children of this node change. When the node has a valid hash, its
+	 ancestors may have one too, so all hashes are dropped. Otherwise none of its ancestors has
+	 a valid hash either, because hashing them would have hashed this node as well.
+	 */
+	protected void changed() {
+		if (hash != 0 && hashModification == MODIFICATIONS.get())
+			MODIFICATIONS.incrementAndGet();
+		hash = 0;
+	}
 }
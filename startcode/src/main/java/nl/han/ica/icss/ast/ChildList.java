@@ -0,0 +1,64 @@
+package nl.han.ica.icss.ast;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The children of a node, like the body of a rule. Every change to the list is passed on to
+ * the node, so the hashes that were cached for it are dropped.
+ */
+public class ChildList<T extends ASTNode> extends AbstractList<T> implements RandomAccess {
+
+    private final ASTNode owner;
+    private final ArrayList<T> nodes = new ArrayList<>();
+
+    ChildList(ASTNode owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public T get(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void add(int index, T node) {
+        owner.changed();
+        modCount++;
+        nodes.add(index, node);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> added) {
+        owner.changed();
+        modCount++;
+        return nodes.addAll(added);
+    }
+
+    @Override
+    public T set(int index, T node) {
+        owner.changed();
+        return nodes.set(index, node);
+    }
+
+    @Override
+    public T remove(int index) {
+        owner.changed();
+        modCount++;
+        return nodes.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        owner.changed();
+        modCount++;
+        nodes.clear();
+    }
+}
@@ -1,14 +1,11 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
-import java.util.Objects;
-
 /*
  * A Declaration defines a style property. Declarations are things like "width: 100px"
  */
 public class Declaration extends ASTNode {
-	public PropertyName property;
-	public Expression expression;
+	private PropertyName property;
+	private Expression expression;
 
 	public Declaration() {
 		super();
@@ -23,36 +20,47 @@ public class Declaration extends ASTNode {
 	}
 
 	@Override
-	public ArrayList<ASTNode> getChildren() {
-
-		ArrayList<ASTNode> children = new ArrayList<>();
-		if(property != null)
-		    children.add(property);
-		if(expression != null)
-		    children.add(expression);
-		return children;
+	public int childCount() {
+		return (property != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		if(property != null) {
+			if(index == 0)
+				return property;
+			index--;
+		}
+		if(expression != null && index == 0)
+			return expression;
+		throw new IndexOutOfBoundsException(index);
 	}
 	@Override
 	public ASTNode addChild(ASTNode child) {
 		if(child instanceof PropertyName) {
-			property = (PropertyName) child;
+			setProperty((PropertyName) child);
 		} else if(child instanceof Expression) {
-			expression = (Expression) child;
+			setExpression((Expression) child);
 		}
 		return this;
 	}
 
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Declaration that = (Declaration) o;
-		return Objects.equals(property, that.property) &&
-				Objects.equals(expression, that.expression);
+	public PropertyName getProperty() {
+		return property;
+	}
+	public void setProperty(PropertyName property) {
+		changed();
+		this.property = property;
+	}
+	public Expression getExpression() {
+		return expression;
 	}
+	public void setExpression(Expression expression) {
+		changed();
+		this.expression = expression;
+	}
+
 	@Override
-	public int hashCode() {
-		return Objects.hash(property, expression);
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitDeclaration(this, context);
 	}
 }
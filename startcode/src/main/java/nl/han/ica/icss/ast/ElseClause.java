@@ -1,17 +1,15 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
-import java.util.Objects;
-
+import java.util.List;
 public class ElseClause extends ASTNode{
 
-    public ArrayList<ASTNode> body = new ArrayList<>();
+    public final ChildList<ASTNode> body = new ChildList<>(this);
 
     public ElseClause() { }
 
-    public ElseClause(ArrayList<ASTNode> body) {
+    public ElseClause(List<ASTNode> body) {
 
-        this.body = body;
+        this.body.addAll(body);
     }
 
     @Override
@@ -19,34 +17,23 @@ public class ElseClause extends ASTNode{
         return "Else_Clause";
     }
     @Override
-    public ArrayList<ASTNode> getChildren() {
-        ArrayList<ASTNode> children = new ArrayList<>();
-        children.addAll(body);
+    public int childCount() {
+        return body.size();
+    }
 
-        return children;
+    @Override
+    public ASTNode childAt(int index) {
+        return body.get(index);
     }
 
     @Override
     public ASTNode addChild(ASTNode child) {
-
         body.add(child);
 
         return this;
     }
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        ElseClause ElseClause = (ElseClause) o;
-        return Objects.equals(body, ElseClause.body);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(body);
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitElseClause(this, context);
     }
-
-
-
 }
@@ -1,3 +1,9 @@
 package nl.han.ica.icss.ast;
 
-public abstract class Expression extends ASTNode { }
+public abstract class Expression extends ASTNode {
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitExpression(this, context);
+    }
+}
@@ -1,26 +1,24 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
-import java.util.Objects;
-
+import java.util.List;
 public class IfClause extends ASTNode {
 
 
-    public Expression conditionalExpression;
-    public ArrayList<ASTNode> body = new ArrayList<>();
-    public ElseClause elseClause;
+    private Expression conditionalExpression;
+    public final ChildList<ASTNode> body = new ChildList<>(this);
+    private ElseClause elseClause;
 
     public IfClause() { }
 
-    public IfClause(Expression conditionalExpression, ArrayList<ASTNode> body) {
+    public IfClause(Expression conditionalExpression, List<ASTNode> body) {
 
         this.conditionalExpression = conditionalExpression;
-        this.body = body;
+        this.body.addAll(body);
     }
-    public IfClause(Expression conditionalExpression, ArrayList<ASTNode> body, ElseClause elseClause) {
+    public IfClause(Expression conditionalExpression, List<ASTNode> body, ElseClause elseClause) {
 
         this.conditionalExpression = conditionalExpression;
-        this.body = body;
+        this.body.addAll(body);
         this.elseClause = elseClause;
     }
 
@@ -29,22 +27,27 @@ public class IfClause extends ASTNode {
         return "If_Clause";
     }
     @Override
-    public ArrayList<ASTNode> getChildren() {
-        ArrayList<ASTNode> children = new ArrayList<>();
-        children.add(conditionalExpression);
-        children.addAll(body);
-        if (elseClause!=null)
-            children.add(elseClause);
+    public int childCount() {
+        return 1 + body.size() + (elseClause != null ? 1 : 0);
+    }
 
-        return children;
+    @Override
+    public ASTNode childAt(int index) {
+        if (index == 0)
+            return conditionalExpression;
+        if (index <= body.size())
+            return body.get(index - 1);
+        if (elseClause != null && index == body.size() + 1)
+            return elseClause;
+        throw new IndexOutOfBoundsException(index);
     }
 
     @Override
     public ASTNode addChild(ASTNode child) {
         if(child instanceof Expression)
-            conditionalExpression  = (Expression) child;
+            setConditionalExpression((Expression) child);
         else if (child instanceof ElseClause)
-            elseClause = (ElseClause) child;
+            setElseClause((ElseClause) child);
         else
             body.add(child);
 
@@ -53,33 +56,25 @@ public class IfClause extends ASTNode {
 
     @Override
     public ASTNode removeChild(ASTNode child) {
-        body.remove(child);
+        removeByIdentity(body, child);
         return this;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        IfClause ifClause = (IfClause) o;
-        if (this.elseClause == null)
-            return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                Objects.equals(body, ifClause.body);
-        else
-            return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                    Objects.equals(body, ifClause.body) &&
-                    Objects.equals(elseClause, ifClause.elseClause);
-
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(conditionalExpression, body, elseClause);
-    }
-
     public Expression getConditionalExpression() {
         return conditionalExpression;
     }
+    public void setConditionalExpression(Expression conditionalExpression) {
+        changed();
+        this.conditionalExpression = conditionalExpression;
+    }
     public ElseClause getElseClause() { return elseClause; }
+    public void setElseClause(ElseClause elseClause) {
+        changed();
+        this.elseClause = elseClause;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitIfClause(this, context);
+    }
 }
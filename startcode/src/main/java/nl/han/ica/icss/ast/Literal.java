@@ -1,5 +1,37 @@
 package nl.han.ica.icss.ast;
 
+import nl.han.ica.icss.ast.literals.NumericLiteral;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
 public abstract class Literal extends Expression {
     public abstract Object getValue();
+
+    /**
+     * @return the type of the literal, for a pixel, percentage or scalar literal also its unit
+     */
+    public abstract ExpressionType getType();
+
+    /**
+     * @return a new pixel, percentage or scalar literal with the given unit and value
+     */
+    public static NumericLiteral numeric(ExpressionType unit, int value) {
+        switch (unit) {
+            case PIXEL:
+                return new PixelLiteral(value);
+            case PERCENTAGE:
+                return new PercentageLiteral(value);
+            case SCALAR:
+                return new ScalarLiteral(value);
+            default:
+                throw new IllegalArgumentException("Not a numeric unit: " + unit);
+        }
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitLiteral(this, context);
+    }
 }
@@ -1,29 +1,54 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
-
 public abstract class Operation extends Expression {
 
-    public Expression lhs;
-    public Expression rhs;
+    private Expression lhs;
+    private Expression rhs;
 
     @Override
-    public ArrayList<ASTNode> getChildren() {
-        ArrayList<ASTNode> children = new ArrayList<>();
-        if(lhs != null)
-            children.add(lhs);
-        if(rhs != null)
-            children.add(rhs);
-        return children;
+    public int childCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode childAt(int index) {
+        if(lhs != null) {
+            if(index == 0)
+                return lhs;
+            index--;
+        }
+        if(rhs != null && index == 0)
+            return rhs;
+        throw new IndexOutOfBoundsException(index);
     }
 
     @Override
     public ASTNode addChild(ASTNode child) {
         if(lhs == null) {
-            lhs = (Expression) child;
+            setLhs((Expression) child);
         } else if(rhs == null) {
-            rhs = (Expression) child;
+            setRhs((Expression) child);
         }
         return this;
     }
+
+    public Expression getLhs() {
+        return lhs;
+    }
+    public void setLhs(Expression lhs) {
+        changed();
+        this.lhs = lhs;
+    }
+    public Expression getRhs() {
+        return rhs;
+    }
+    public void setRhs(Expression rhs) {
+        changed();
+        this.rhs = rhs;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitOperation(this, context);
+    }
 }
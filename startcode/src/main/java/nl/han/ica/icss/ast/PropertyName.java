@@ -1,20 +1,61 @@
 package nl.han.ica.icss.ast;
 
+import java.util.Objects;
+
 public class PropertyName extends ASTNode {
 
-    public String name;
+    // The properties ICSS knows, Symbol interns them first so they have ids 0 to 3
+    public static final Symbol WIDTH = Symbol.property("width");
+    public static final Symbol HEIGHT = Symbol.property("height");
+    public static final Symbol COLOR = Symbol.property("color");
+    public static final Symbol BACKGROUND_COLOR = Symbol.property("background-color");
+
+    public final String name;
+    private final Symbol symbol;
 
     public PropertyName() {
-        super();
-        name = "undefined";
+        this("undefined");
     }
     public PropertyName(String name) {
         super();
-        this.name = name;
+        this.symbol = Symbol.property(name);
+        this.name = symbol.getName();
+    }
+
+    /**
+     * @return the interned name
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the id of the symbol of the name, the same for all trees that use the name
+     */
+    public int getId() {
+        return getSymbol().getId();
     }
 
     @Override
     public String getNodeLabel() {
         return "Property: (" + name + ")";
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PropertyName that = (PropertyName) o;
+        return Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name);
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitPropertyName(this, context);
+    }
 }
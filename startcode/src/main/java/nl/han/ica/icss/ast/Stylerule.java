@@ -1,20 +1,17 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
-import java.util.Objects;
-
+import java.util.List;
 public class Stylerule extends ASTNode {
 	
-	public ArrayList<Selector> selectors = new ArrayList<>();
-	public ArrayList<ASTNode> body = new ArrayList<>();
+	public final ChildList<Selector> selectors = new ChildList<>(this);
+	public final ChildList<ASTNode> body = new ChildList<>(this);
 
     public Stylerule() { }
 
-    public Stylerule(Selector selector, ArrayList<ASTNode> body) {
+    public Stylerule(Selector selector, List<ASTNode> body) {
 
-    	this.selectors = new ArrayList<>();
     	this.selectors.add(selector);
-    	this.body = body;
+    	this.body.addAll(body);
     }
 
     @Override
@@ -22,12 +19,14 @@ public class Stylerule extends ASTNode {
 		return "Stylerule";
 	}
 	@Override
-	public ArrayList<ASTNode> getChildren() {
-		ArrayList<ASTNode> children = new ArrayList<>();
-		children.addAll(selectors);
-		children.addAll(body);
-
-		return children;
+	public int childCount() {
+		return selectors.size() + body.size();
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		if(index < selectors.size())
+			return selectors.get(index);
+		return body.get(index - selectors.size());
 	}
 
     @Override
@@ -42,22 +41,12 @@ public class Stylerule extends ASTNode {
 
 	@Override
 	public ASTNode removeChild(ASTNode child) {
-		body.remove(child);
+		removeByIdentity(body, child);
 		return this;
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Stylerule stylerule = (Stylerule) o;
-		return Objects.equals(selectors, stylerule.selectors) &&
-				Objects.equals(body, stylerule.body);
-	}
-
-	@Override
-	public int hashCode() {
-		return Objects.hash(selectors, body);
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitStylerule(this, context);
 	}
 }
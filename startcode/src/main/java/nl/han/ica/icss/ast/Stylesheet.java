@@ -1,9 +1,6 @@
 package nl.han.ica.icss.ast;
 
-import nl.han.ica.icss.checker.SemanticError;
-
-import java.util.ArrayList;
-import java.util.Objects;
+import java.util.List;
 
 /**
  * A stylesheet is the root node of the AST, it consists of one or more statements
@@ -12,21 +9,24 @@ import java.util.Objects;
 public class Stylesheet extends ASTNode {
 
 
-	public ArrayList<ASTNode> body;
+	public final ChildList<ASTNode> body = new ChildList<>(this);
 	
 	public Stylesheet() {
-		this.body = new ArrayList<>();
 	}
-	public Stylesheet(ArrayList<ASTNode> body) {
-		this.body = body;
+	public Stylesheet(List<ASTNode> body) {
+		this.body.addAll(body);
 	}
 	@Override
 	public String getNodeLabel() {
 		return "Stylesheet";
 	}
 	@Override
-	public ArrayList<ASTNode> getChildren() {
-		return this.body;
+	public int childCount() {
+		return body.size();
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		return body.get(index);
 	}
 	@Override
 	public ASTNode addChild(ASTNode child) {
@@ -35,22 +35,12 @@ public class Stylesheet extends ASTNode {
 	}
 	@Override
 	public ASTNode removeChild(ASTNode child) {
-		body.remove(child);
+		removeByIdentity(body, child);
 		return this;
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Stylesheet that = (Stylesheet) o;
-		return Objects.equals(body, that.body);
-	}
-
-	@Override
-	public int hashCode() {
-
-		return Objects.hash(body);
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitStylesheet(this, context);
 	}
 }
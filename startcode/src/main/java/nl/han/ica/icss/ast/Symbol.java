@@ -0,0 +1,145 @@
+package nl.han.ica.icss.ast;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An interned identifier: a property, selector or variable name. There is one Symbol for every
+ * distinct name, shared by all trees and threads, so symbols compare by identity and hash by
+ * their id. Ids are small and dense, so they can index arrays.
+ *
+ * Property names are interned apart from the other names, so their ids stay as small as the
+ * number of properties, 0 to 3 for the ones ICSS knows. The pools only hold their symbols
+ * weakly: a name that no tree uses anymore is dropped, and its id is given to the next new
+ * name. So names that were only typed once in the editor don't stay around.
+ */
+public final class Symbol {
+    private static final Pool NAMES = new Pool();
+    private static final Pool PROPERTIES = new Pool("width", "height", "color", "background-color");
+
+    private final String name;
+    private final int id;
+
+    private Symbol(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * @return the symbol for the selector or variable name, the same instance for equal names
+     */
+    public static Symbol of(String name) {
+        return NAMES.intern(name);
+    }
+
+    /**
+     * @return the symbol for the property name, the same instance for equal names
+     */
+    public static Symbol property(String name) {
+        return PROPERTIES.intern(name);
+    }
+
+    /**
+     * @return the canonical instance of the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // Equal by identity, there is only one symbol per name
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // Number of ids handed out by the pool of the other names, for tests
+    static int nameIdCount() {
+        return NAMES.idCount();
+    }
+
+    private static final class Pool {
+        private final ConcurrentHashMap<String, Entry> symbols = new ConcurrentHashMap<>();
+        private final ReferenceQueue<Symbol> dropped = new ReferenceQueue<>();
+        // Ids of dropped symbols, handed out again before new ones
+        private final Deque<Integer> freeIds = new ArrayDeque<>();
+        private int nextId = 0;
+        // The names given up front, they are never dropped
+        private final List<Symbol> pinned = new ArrayList<>();
+
+        Pool(String... names) {
+            for (String name : names) {
+                pinned.add(intern(name));
+            }
+        }
+
+        Symbol intern(String name) {
+            Entry entry = symbols.get(name);
+            Symbol symbol = entry != null ? entry.get() : null;
+            if (symbol != null) {
+                return symbol;
+            }
+
+            removeDropped();
+            Symbol[] interned = new Symbol[1];
+            symbols.compute(name, (key, old) -> {
+                interned[0] = old != null ? old.get() : null;
+                if (interned[0] != null) {
+                    return old;
+                }
+                interned[0] = new Symbol(key, takeId());
+                return new Entry(interned[0], dropped);
+            });
+            // The entry only holds the symbol weakly, the local keeps it alive until it is returned
+            return interned[0];
+        }
+
+        private void removeDropped() {
+            Entry entry;
+            while ((entry = (Entry) dropped.poll()) != null) {
+                // A new symbol for the name may have taken its place already
+                symbols.remove(entry.name, entry);
+                freeId(entry.id);
+            }
+        }
+
+        private synchronized int takeId() {
+            Integer id = freeIds.poll();
+            return id != null ? id : nextId++;
+        }
+
+        private synchronized void freeId(int id) {
+            freeIds.push(id);
+        }
+
+        synchronized int idCount() {
+            return nextId;
+        }
+    }
+
+    // The name and id are kept, the symbol itself is gone once the entry is dropped
+    private static final class Entry extends WeakReference<Symbol> {
+        final String name;
+        final int id;
+
+        Entry(Symbol symbol, ReferenceQueue<Symbol> queue) {
+            super(symbol, queue);
+            this.name = symbol.name;
+            this.id = symbol.id;
+        }
+    }
+}
@@ -1,16 +1,13 @@
 package nl.han.ica.icss.ast;
 
-import java.util.ArrayList;
-import java.util.Objects;
-
 /**
  * An assignment binds a expression to an identifier.
  *
  */
 public class VariableAssignment extends ASTNode {
 	
-	public VariableReference name;
-	public Expression expression;
+	private VariableReference name;
+	private Expression expression;
 
 	@Override
 	public String getNodeLabel() {
@@ -20,37 +17,48 @@ public class VariableAssignment extends ASTNode {
 	@Override
 	public ASTNode addChild(ASTNode child) {
 		if(name == null) {
-			name = (VariableReference) child;
+			setName((VariableReference) child);
 		} else if(expression == null) {
-			expression = (Expression) child;
+			setExpression((Expression) child);
 		}
 
 		return this;
 	}
 
-	@Override
-	public ArrayList<ASTNode> getChildren() {
+	public VariableReference getName() {
+		return name;
+	}
+	public void setName(VariableReference name) {
+		changed();
+		this.name = name;
+	}
+	public Expression getExpression() {
+		return expression;
+	}
+	public void setExpression(Expression expression) {
+		changed();
+		this.expression = expression;
+	}
 
-		ArrayList<ASTNode> children = new ArrayList<>();
-		if(name != null)
-			children.add(name);
-		if(expression != null)
-			children.add(expression);
-		return children;
+	@Override
+	public int childCount() {
+		return (name != null ? 1 : 0) + (expression != null ? 1 : 0);
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		VariableAssignment that = (VariableAssignment) o;
-		return Objects.equals(name, that.name) &&
-				Objects.equals(expression, that.expression);
+	public ASTNode childAt(int index) {
+		if(name != null) {
+			if(index == 0)
+				return name;
+			index--;
+		}
+		if(expression != null && index == 0)
+			return expression;
+		throw new IndexOutOfBoundsException(index);
 	}
 
 	@Override
-	public int hashCode() {
-		return Objects.hash(name, expression);
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitVariableAssignment(this, context);
 	}
 }
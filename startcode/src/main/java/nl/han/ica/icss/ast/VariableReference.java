@@ -4,11 +4,20 @@ import java.util.Objects;
 
 public class VariableReference extends Expression {
 
-	public String name;
+	public final String name;
+	private final Symbol symbol;
 	
 	public VariableReference(String name) {
 		super();
-		this.name = name;
+		this.symbol = Symbol.of(name);
+		this.name = symbol.getName();
+	}
+
+	/**
+	 * @return the interned name
+	 */
+	public Symbol getSymbol() {
+		return symbol;
 	}
 
 	@Override
@@ -30,4 +39,9 @@ public class VariableReference extends Expression {
 
 		return Objects.hash(name);
 	}
+
+	@Override
+	public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+		return visitor.visitVariableReference(this, context);
+	}
 }
@@ -1,10 +1,12 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.types.ExpressionType;
 import java.util.Objects;
 
 public class BoolLiteral extends Literal {
-    public boolean value;
+    public final boolean value;
 
     public BoolLiteral(boolean value) {
         this.value = value;
@@ -36,4 +38,14 @@ public class BoolLiteral extends Literal {
     public Object getValue() {
         return this.value;
     }
+
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.BOOL;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitBoolLiteral(this, context);
+    }
 }
@@ -1,11 +1,13 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
 public class ColorLiteral extends Literal {
-    public String value;
+    public final String value;
 
     public ColorLiteral(String value) {
         this.value = value;
@@ -33,4 +35,14 @@ public class ColorLiteral extends Literal {
     public Object getValue() {
         return this.value;
     }
+
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.COLOR;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitColorLiteral(this, context);
+    }
 }
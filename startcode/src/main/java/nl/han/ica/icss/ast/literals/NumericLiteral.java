@@ -0,0 +1,21 @@
+package nl.han.ica.icss.ast.literals;
+
+import nl.han.ica.icss.ast.Literal;
+
+/**
+ * A pixel, percentage or scalar literal, the literals that operations calculate with.
+ */
+public abstract class NumericLiteral extends Literal {
+    public final int value;
+
+    protected NumericLiteral(int value) {
+        this.value = value;
+    }
+
+    /**
+     * @return the value, without boxing it like getValue does
+     */
+    public int intValue() {
+        return value;
+    }
+}
@@ -1,17 +1,17 @@
 package nl.han.ica.icss.ast.literals;
 
-import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
-public class PercentageLiteral extends Literal {
-    public int value;
+public class PercentageLiteral extends NumericLiteral {
 
     public PercentageLiteral(int value) {
-        this.value = value;
+        super(value);
     }
     public PercentageLiteral(String text) {
-        this.value = Integer.parseInt(text.substring(0, text.length() - 1));
+        super(Integer.parseInt(text.substring(0, text.length() - 1)));
     }
     @Override
     public String getNodeLabel() {
@@ -36,4 +36,14 @@ public class PercentageLiteral extends Literal {
     public Object getValue() {
         return this.value;
     }
+
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.PERCENTAGE;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitPercentageLiteral(this, context);
+    }
 }
@@ -1,17 +1,17 @@
 package nl.han.ica.icss.ast.literals;
 
-import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
-public class PixelLiteral extends Literal {
-    public int value;
+public class PixelLiteral extends NumericLiteral {
 
     public PixelLiteral(int value) {
-        this.value = value;
+        super(value);
     }
     public PixelLiteral(String text) {
-        this.value = Integer.parseInt(text.substring(0, text.length() - 2));
+        super(Integer.parseInt(text.substring(0, text.length() - 2)));
     }
     @Override
     public String getNodeLabel() {
@@ -36,4 +36,14 @@ public class PixelLiteral extends Literal {
     public Object getValue() {
         return this.value;
     }
+
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.PIXEL;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitPixelLiteral(this, context);
+    }
 }
@@ -1,17 +1,17 @@
 package nl.han.ica.icss.ast.literals;
 
-import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Objects;
 
-public class ScalarLiteral extends Literal {
-    public int value;
+public class ScalarLiteral extends NumericLiteral {
 
     public ScalarLiteral(int value) {
-        this.value = value;
+        super(value);
     }
     public ScalarLiteral(String text) {
-        this.value = Integer.parseInt(text);
+        super(Integer.parseInt(text));
     }
     @Override
     public String getNodeLabel() {
@@ -36,4 +36,14 @@ public class ScalarLiteral extends Literal {
     public Object getValue() {
         return this.value;
     }
+
+    @Override
+    public ExpressionType getType() {
+        return ExpressionType.SCALAR;
+    }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitScalarLiteral(this, context);
+    }
 }
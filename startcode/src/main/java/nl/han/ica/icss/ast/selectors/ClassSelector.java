@@ -1,14 +1,25 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
+import nl.han.ica.icss.ast.Symbol;
 
 import java.util.Objects;
 
 public class ClassSelector extends Selector {
-    public String cls;
+    public final String cls;
+    private final Symbol symbol;
 
     public ClassSelector(String cls) {
-        this.cls = cls;
+        this.symbol = Symbol.of(cls);
+        this.cls = symbol.getName();
+    }
+
+    /**
+     * @return the interned class
+     */
+    public Symbol getSymbol() {
+        return symbol;
     }
 
     @Override
@@ -32,4 +43,9 @@ public class ClassSelector extends Selector {
     public int hashCode() {
         return Objects.hash(cls);
     }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitClassSelector(this, context);
+    }
 }
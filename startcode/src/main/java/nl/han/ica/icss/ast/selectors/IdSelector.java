@@ -1,14 +1,25 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
+import nl.han.ica.icss.ast.Symbol;
 
 import java.util.Objects;
 
 public class IdSelector extends Selector {
-    public String id;
+    public final String id;
+    private final Symbol symbol;
 
     public IdSelector(String id) {
-        this.id = id;
+        this.symbol = Symbol.of(id);
+        this.id = symbol.getName();
+    }
+
+    /**
+     * @return the interned id
+     */
+    public Symbol getSymbol() {
+        return symbol;
     }
 
     public String getNodeLabel() {
@@ -31,4 +42,9 @@ public class IdSelector extends Selector {
     public int hashCode() {
         return Objects.hash(id);
     }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitIdSelector(this, context);
+    }
 }
@@ -1,14 +1,25 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
+import nl.han.ica.icss.ast.Symbol;
 
 import java.util.Objects;
 
 public class TagSelector extends Selector {
-    public String tag;
+    public final String tag;
+    private final Symbol symbol;
 
     public TagSelector(String tag) {
-        this.tag = tag;
+        this.symbol = Symbol.of(tag);
+        this.tag = symbol.getName();
+    }
+
+    /**
+     * @return the interned tag
+     */
+    public Symbol getSymbol() {
+        return symbol;
     }
 
     public String getNodeLabel() {
@@ -32,4 +43,9 @@ public class TagSelector extends Selector {
 
         return Objects.hash(tag);
     }
+
+    @Override
+    public <R, C> R accept(ASTVisitor<R, C> visitor, C context) {
+        return visitor.visitTagSelector(this, context);
+    }
 }
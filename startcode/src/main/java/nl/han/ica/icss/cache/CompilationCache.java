@@ -0,0 +1,190 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Pipeline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache in front of the Pipeline, keyed by the SHA-256 hash of the source text, the compile mode
+ * and the cache format. Results are kept in an in-memory LRU and optionally in a MappedDiskStore
+ * behind it, which outlives the process, so results of one mode are never served to another.
+ *
+ * Safe to use from several threads. Two threads that miss on the same source at the same time
+ * both compile it, the last result is kept.
+ */
+public class CompilationCache {
+    /**
+     * Mode of compile(String): parse, check, transform and generate.
+     */
+    public static final String STAGED = "staged";
+
+    // Part of every key, raise it when the stored results of a mode change
+    private static final int FORMAT_VERSION = 1;
+
+    private final int capacity;
+    private final LinkedHashMap<String, CompilationResult> entries;
+    private final MappedDiskStore diskStore;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(CompilationCache::newDigest);
+    private final ThreadLocal<Pipeline> pipelines = ThreadLocal.withInitial(Pipeline::new);
+
+    /**
+     * @param capacity number of results kept in memory
+     * @param diskDirectory directory for the disk store, or null to only cache in memory
+     */
+    public CompilationCache(int capacity, Path diskDirectory) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1, was " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.diskStore = diskDirectory == null ? null : new MappedDiskStore(diskDirectory);
+
+        // Access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompilationResult> eldest) {
+                if (size() > CompilationCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Compiles the source with parse, check, transform and generate, or returns the cached result.
+     */
+    public CompilationResult compile(String source) {
+        return compile(source, STAGED, this::compileWithPipeline);
+    }
+
+    /**
+     * Returns the cached result for the source in the given mode, or compiles it with the given
+     * compiler and caches that. The result of the compiler may only depend on the source text and
+     * the mode, so every way of compiling that can give other output needs a mode of its own.
+     * @param mode name of the way the compiler compiles, without line breaks
+     */
+    public CompilationResult compile(String source, String mode, Function<String, CompilationResult> compiler) {
+        String hash = hash(mode, source);
+
+        CompilationResult result;
+        synchronized (entries) {
+            result = entries.get(hash);
+        }
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+
+        result = readFromDisk(hash);
+        if (result != null) {
+            diskHits.increment();
+        } else {
+            misses.increment();
+            result = compiler.apply(source);
+            writeToDisk(hash, result);
+        }
+
+        synchronized (entries) {
+            entries.put(hash, result);
+        }
+        return result;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that weren't in memory, but were found in the disk store
+     */
+    public long getDiskHitCount() {
+        return diskHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private CompilationResult compileWithPipeline(String source) {
+        Pipeline pipeline = pipelines.get();
+        pipeline.parseString(source);
+        if (pipeline.isParsed() && pipeline.check()) {
+            pipeline.transform();
+            return new CompilationResult(pipeline.generate(), pipeline.getErrors());
+        }
+        return new CompilationResult(null, pipeline.getErrors());
+    }
+
+    private CompilationResult readFromDisk(String hash) {
+        if (diskStore == null) {
+            return null;
+        }
+
+        try {
+            return diskStore.read(hash);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeToDisk(String hash, CompilationResult result) {
+        if (diskStore == null) {
+            return;
+        }
+
+        try {
+            diskStore.write(hash, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String hash(String mode, String source) {
+        MessageDigest messageDigest = digests.get();
+        messageDigest.update((FORMAT_VERSION + "\n" + mode + "\n").getBytes(StandardCharsets.UTF_8));
+        byte[] digest = messageDigest.digest(source.getBytes(StandardCharsets.UTF_8));
+
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = Character.forDigit((digest[i] >> 4) & 0xf, 16);
+            hex[i * 2 + 1] = Character.forDigit(digest[i] & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package nl.han.ica.icss.cache;
+
+import java.util.List;
+
+/**
+ * Outcome of compiling one source: the generated CSS, or the errors when it didn't compile.
+ */
+public class CompilationResult {
+    private final String css;
+    private final List<String> errors;
+
+    public CompilationResult(String css, List<String> errors) {
+        this.css = css;
+        this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * @return the CSS, or null when there were errors
+     */
+    public String getCss() {
+        return css;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public boolean isSuccessful() {
+        return css != null && errors.isEmpty();
+    }
+}
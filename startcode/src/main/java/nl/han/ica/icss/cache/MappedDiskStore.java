@@ -0,0 +1,125 @@
+package nl.han.ica.icss.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps compilation results on disk, one file per content hash, read and written through
+ * memory-mapped buffers. Files are spread over subdirectories named after the first two
+ * characters of the hash.
+ *
+ * File layout: a magic number, the number of errors, every error as its length in bytes followed by the UTF-8
+ * bytes, then the CSS the same way (length -1 when there is none).
+ */
+class MappedDiskStore {
+    private static final int MAGIC = 0x49435353; // "ICSS"
+
+    private final Path directory;
+
+    MappedDiskStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * @return the stored result, or null when there is none or the file can't be read
+     */
+    CompilationResult read(String hash) throws IOException {
+        Path file = fileFor(hash);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+
+            int errorCount = buffer.getInt();
+            List<String> errors = new ArrayList<>(errorCount);
+            for (int i = 0; i < errorCount; i++) {
+                String error = readString(buffer);
+                if (error == null) {
+                    return null;
+                }
+                errors.add(error);
+            }
+
+            return new CompilationResult(readString(buffer), errors);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Truncated or otherwise broken, compiling again overwrites it
+            return null;
+        }
+    }
+
+    /**
+     * Writes to a temporary file first and moves it into place, so readers never see half a file.
+     */
+    void write(String hash, CompilationResult result) throws IOException {
+        List<byte[]> errors = new ArrayList<>(result.getErrors().size());
+        long size = 2 * Integer.BYTES;
+        for (String error : result.getErrors()) {
+            byte[] bytes = error.getBytes(StandardCharsets.UTF_8);
+            errors.add(bytes);
+            size += Integer.BYTES + bytes.length;
+        }
+        byte[] css = result.getCss() == null ? null : result.getCss().getBytes(StandardCharsets.UTF_8);
+        size += Integer.BYTES + (css == null ? 0 : css.length);
+
+        Path file = fileFor(hash);
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), hash, ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC);
+                buffer.putInt(errors.size());
+                for (byte[] error : errors) {
+                    writeBytes(buffer, error);
+                }
+                writeBytes(buffer, css);
+                buffer.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path fileFor(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + ".result");
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        ByteBuffer bytes = buffer.slice();
+        bytes.limit(length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+}
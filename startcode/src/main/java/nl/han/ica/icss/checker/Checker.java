@@ -9,10 +9,12 @@ import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Checker {
-    private SymbolTable<String, ExpressionType> variableTypes;
+    private SymbolTable<Symbol, ExpressionType> variableTypes;
 
     public void check(AST ast) {
         variableTypes = new SymbolTable<>();
@@ -20,27 +22,174 @@ public class Checker {
         checkNode(ast.root);
     }
 
-    private void checkNode(ASTNode node) {
-        if (node instanceof Stylesheet) {
-            checkStylesheet((Stylesheet) node);
-        } else if (node instanceof Stylerule) {
-            checkStylerule((Stylerule) node);
-        } else if (node instanceof Operation) {
-            checkOperation((Operation) node);
-        } else if (node instanceof Declaration) {
-            checkDeclaration((Declaration) node);
-        } else if (node instanceof VariableAssignment) {
-            checkVariableAssignment((VariableAssignment) node);
-        } else if (node instanceof VariableReference) {
-            checkVariableReference((VariableReference) node);
-        } else if (node instanceof IfClause) {
-            checkIfClause((IfClause) node);
-        } else if (node instanceof ElseClause) {
-            checkElseClause((ElseClause) node);
-        } else {
-            if (node instanceof Literal) return; // Just skip literals
+    /**
+     * Checks the variable assignments at the top of a stylesheet, in order.
+     * @return the types of the global variables afterwards, to check style rules with one by one
+     */
+    public Map<String, ExpressionType> checkVariableAssignments(List<VariableAssignment> assignments) {
+        variableTypes = new SymbolTable<>();
+        variableTypes.pushScope();
+
+        Map<String, ExpressionType> globals = new HashMap<>();
+        for (VariableAssignment assignment : assignments) {
+            checkNode(assignment);
+            globals.put(assignment.getName().name, variableTypes.getVariable(assignment.getName().getSymbol()));
+        }
+
+        variableTypes.popScope();
+        return globals;
+    }
+
+    /**
+     * Checks a single style rule the same way check does, with the given global variables in scope.
+     */
+    public void checkStylerule(Stylerule stylerule, Map<String, ExpressionType> globals) {
+        variableTypes = new SymbolTable<>();
+        variableTypes.pushScope();
+        for (Map.Entry<String, ExpressionType> global : globals.entrySet()) {
+            variableTypes.putVariable(Symbol.of(global.getKey()), global.getValue());
+        }
+
+        checkNode(stylerule);
+        variableTypes.popScope();
+    }
+
+    // Every node type goes to its own check method
+    private final ASTVisitor<Void, Void> nodeChecker = new ASTVisitor<>() {
+        @Override
+        public Void visitNode(ASTNode node, Void context) {
             System.out.println("Check not implemented for node of type: " + node.getNodeLabel());
+            return null;
+        }
+
+        @Override
+        public Void visitStylesheet(Stylesheet node, Void context) {
+            checkStylesheet(node);
+            return null;
+        }
+
+        @Override
+        public Void visitStylerule(Stylerule node, Void context) {
+            checkStylerule(node);
+            return null;
+        }
+
+        @Override
+        public Void visitAddOperation(AddOperation node, Void context) {
+            checkAddOrSubtractOperation(node);
+            return null;
+        }
+
+        @Override
+        public Void visitSubtractOperation(SubtractOperation node, Void context) {
+            checkAddOrSubtractOperation(node);
+            return null;
+        }
+
+        @Override
+        public Void visitMultiplyOperation(MultiplyOperation node, Void context) {
+            checkMultiplyOperation(node);
+            return null;
+        }
+
+        @Override
+        public Void visitDeclaration(Declaration node, Void context) {
+            checkDeclaration(node);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node, Void context) {
+            checkVariableAssignment(node);
+            return null;
         }
+
+        @Override
+        public Void visitVariableReference(VariableReference node, Void context) {
+            checkVariableReference(node);
+            return null;
+        }
+
+        @Override
+        public Void visitIfClause(IfClause node, Void context) {
+            checkIfClause(node);
+            return null;
+        }
+
+        @Override
+        public Void visitElseClause(ElseClause node, Void context) {
+            checkElseClause(node);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(Literal node, Void context) {
+            // Just skip literals
+            return null;
+        }
+    };
+
+    // Determines the type of an expression, see getExpressionType
+    private final ASTVisitor<ExpressionType, Void> expressionTyper = new ASTVisitor<>() {
+        @Override
+        public ExpressionType visitNode(ASTNode node, Void context) {
+            return ExpressionType.UNDEFINED;
+        }
+
+        // If the expression contains an operation, unpack that bitch
+        // FOOL PROOF I SAY :D
+        @Override
+        public ExpressionType visitOperation(Operation node, Void context) {
+            ExpressionType leftType = getExpressionType(node.getLhs());
+            if (leftType != ExpressionType.SCALAR) {
+                return leftType;
+            } else {
+                return getExpressionType(node.getRhs());
+            }
+        }
+
+        // If the expression contains a variable reference
+        // check if the reference is valid and set the error on the node if so.
+        // This error is used to determine if the variable is set, and we'll return accordingly
+        @Override
+        public ExpressionType visitVariableReference(VariableReference node, Void context) {
+            checkVariableReference(node);
+            if (node.hasError()) {
+                return ExpressionType.UNDEFINED;
+            } else {
+                return variableTypes.getVariable(node.getSymbol());
+            }
+        }
+
+        // Finally something easy, return the enum entry corresponding to the literal
+        @Override
+        public ExpressionType visitPixelLiteral(PixelLiteral node, Void context) {
+            return ExpressionType.PIXEL;
+        }
+
+        @Override
+        public ExpressionType visitColorLiteral(ColorLiteral node, Void context) {
+            return ExpressionType.COLOR;
+        }
+
+        @Override
+        public ExpressionType visitScalarLiteral(ScalarLiteral node, Void context) {
+            return ExpressionType.SCALAR;
+        }
+
+        @Override
+        public ExpressionType visitBoolLiteral(BoolLiteral node, Void context) {
+            return ExpressionType.BOOL;
+        }
+
+        @Override
+        public ExpressionType visitPercentageLiteral(PercentageLiteral node, Void context) {
+            return ExpressionType.PERCENTAGE;
+        }
+    };
+
+    private void checkNode(ASTNode node) {
+        node.accept(nodeChecker, null);
     }
 
     // For scoped rules, just check all the children in the body of the scope
@@ -61,13 +210,33 @@ public class Checker {
         variableTypes.popScope();
     }
 
-    private void checkOperation(Operation node) {
-        checkNode(node.lhs);
-        checkNode(node.rhs);
+    private void checkMultiplyOperation(MultiplyOperation node) {
+        checkNode(node.getLhs());
+        checkNode(node.getRhs());
+
+        ExpressionType leftType = getExpressionType(node.getLhs());
+        ExpressionType rightType = getExpressionType(node.getRhs());
+        checkOperandTypes(node, leftType, rightType);
+
+        if (leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR) {
+            node.setError("Multiply is only allowed with at least one scalar literal");
+        }
+    }
+
+    private void checkAddOrSubtractOperation(Operation node) {
+        checkNode(node.getLhs());
+        checkNode(node.getRhs());
+
+        ExpressionType leftType = getExpressionType(node.getLhs());
+        ExpressionType rightType = getExpressionType(node.getRhs());
+        checkOperandTypes(node, leftType, rightType);
 
-        ExpressionType leftType = getExpressionType(node.lhs);
-        ExpressionType rightType = getExpressionType(node.rhs);
+        if (leftType != rightType) {
+            node.setError("You can only add or subtract with the same literal.");
+        }
+    }
 
+    private void checkOperandTypes(Operation node, ExpressionType leftType, ExpressionType rightType) {
         // Check if expression is of not allowed type
         List<ExpressionType> notAllowed = Arrays.asList(ExpressionType.BOOL, ExpressionType.COLOR);
 
@@ -75,30 +244,17 @@ public class Checker {
         if (notAllowed.contains(leftType) || notAllowed.contains(rightType)) {
             node.setError("Expressions cannot contain types " + notAllowed);
         }
-
-        if (node instanceof MultiplyOperation) {
-            if (leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR) {
-                node.setError("Multiply is only allowed with at least one scalar literal");
-                return;
-            }
-        }
-
-        if (node instanceof AddOperation || node instanceof SubtractOperation) {
-            if (leftType != rightType) {
-                node.setError("You can only add or subtract with the same literal.");
-            }
-        }
     }
 
     public void checkIfClause(IfClause node) {
         // Make sure to check the else clause aswell
-        if (node.elseClause != null) {
-            checkNode(node.elseClause);
+        if (node.getElseClause() != null) {
+            checkNode(node.getElseClause());
         }
 
         // Check the conditional expression of the if statement
-        checkNode(node.conditionalExpression);
-        ExpressionType ifExpressionType = getExpressionType(node.conditionalExpression);
+        checkNode(node.getConditionalExpression());
+        ExpressionType ifExpressionType = getExpressionType(node.getConditionalExpression());
 
         if(ifExpressionType != ExpressionType.BOOL) {
             node.setError("If statements can only use boolean expressions");
@@ -120,36 +276,29 @@ public class Checker {
     }
 
     private void checkDeclaration(Declaration node) {
-        checkNode(node.expression);
-        ExpressionType expressionType = getExpressionType(node.expression);
+        checkNode(node.getExpression());
+        ExpressionType expressionType = getExpressionType(node.getExpression());
 
         // Check if expression type matches for the property being declared:
-        switch (node.property.name) {
-            case "width":
-            case "height":
-                if (expressionType != ExpressionType.PIXEL && expressionType != ExpressionType.PERCENTAGE) {
-                    node.setError("Size properties should be assigned a pixel literal or a percentage literal");
-                    return;
-                }
-                break;
-            case "color":
-            case "background-color":
-                if (expressionType != ExpressionType.COLOR) {
-                    node.setError("Color properties should be assigned a color literal");
-                    return;
-                }
-                break;
-            default:
-                node.setError("Unknown property, choose from width, height, color or background-color");
-                break;
+        Symbol property = node.getProperty().getSymbol();
+        if (property == PropertyName.WIDTH || property == PropertyName.HEIGHT) {
+            if (expressionType != ExpressionType.PIXEL && expressionType != ExpressionType.PERCENTAGE) {
+                node.setError("Size properties should be assigned a pixel literal or a percentage literal");
+            }
+        } else if (property == PropertyName.COLOR || property == PropertyName.BACKGROUND_COLOR) {
+            if (expressionType != ExpressionType.COLOR) {
+                node.setError("Color properties should be assigned a color literal");
+            }
+        } else {
+            node.setError("Unknown property, choose from width, height, color or background-color");
         }
     }
 
     private void checkVariableAssignment(VariableAssignment node) {
-        checkNode(node.expression);
-        String newVariableName = node.name.name; // Variable reference name (very nice naming scheme I know)
+        checkNode(node.getExpression());
+        Symbol newVariableName = node.getName().getSymbol(); // Variable reference name (very nice naming scheme I know)
 
-        ExpressionType newExpressionType = getExpressionType(node.expression);
+        ExpressionType newExpressionType = getExpressionType(node.getExpression());
         ExpressionType previousExpressionType = variableTypes.getVariable(newVariableName);
 
         if (previousExpressionType != null && newExpressionType != previousExpressionType) {
@@ -161,58 +310,17 @@ public class Checker {
     }
 
     public void checkVariableReference(VariableReference node) {
-        ExpressionType expressionType = variableTypes.getVariable(node.name);
+        ExpressionType expressionType = variableTypes.getVariable(node.getSymbol());
         if (expressionType == null) {
             node.setError("Variable: " + node.name + " not defined in scope");
         }
     }
 
     public ExpressionType getExpressionType(Expression expression) {
-        // If the expression contains an operation, unpack that bitch
-
-        // FOOL PROOF I SAY :D
-        if (expression instanceof Operation) {
-            ExpressionType leftType = getExpressionType(((Operation) expression).lhs);
-            if(leftType != ExpressionType.SCALAR) {
-                return leftType;
-            } else {
-                return getExpressionType(((Operation) expression).rhs);
-            }
-        }
-
-        // If the expression contains a variable reference
-        // check if the reference is valid and set the error on the node if so.
-        // This error is used to determine if the variable is set, and we'll return accordingly
-        if (expression instanceof VariableReference) {
-            checkVariableReference((VariableReference) expression);
-            if (expression.hasError()) {
-                return ExpressionType.UNDEFINED;
-            } else {
-                return variableTypes.getVariable(((VariableReference) expression).name);
-            }
-        }
-
-        // Finally something easy, return the enum entry corresponding to the literal
-        if (expression instanceof PixelLiteral) {
-            return ExpressionType.PIXEL;
-        }
-
-        if (expression instanceof ColorLiteral) {
-            return ExpressionType.COLOR;
-        }
-
-        if (expression instanceof ScalarLiteral) {
-            return ExpressionType.SCALAR;
-        }
-
-        if (expression instanceof BoolLiteral) {
-            return ExpressionType.BOOL;
-        }
-
-        if (expression instanceof PercentageLiteral) {
-            return ExpressionType.PERCENTAGE;
+        if (expression == null) {
+            return ExpressionType.UNDEFINED;
         }
 
-        return ExpressionType.UNDEFINED;
+        return expression.accept(expressionTyper, null);
     }
 }
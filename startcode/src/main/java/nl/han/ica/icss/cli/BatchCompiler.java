@@ -0,0 +1,392 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompilationCache;
+import nl.han.ica.icss.cache.CompilationResult;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles a batch of .icss files without the GUI. Files are spread over a work-stealing
+ * pool and every worker thread keeps its own Pipeline, so nothing is shared between compiles.
+ */
+public class BatchCompiler {
+
+    public enum Stage {
+        PARSE,
+        CHECK,
+        TRANSFORM,
+        GENERATE
+    }
+
+    private final int threads;
+    private final Path outputDirectory;
+
+    // Summed wall time per stage over all files (in nanoseconds)
+    private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+    private final LongAdder compiled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private long elapsedNanos;
+
+    // One pipeline per worker, a pipeline keeps state between stages so it can't be shared
+    private final ThreadLocal<Pipeline> pipelines = ThreadLocal.withInitial(Pipeline::new);
+
+    private final PrintStream errorOut;
+
+    private boolean fused = false;
+    private boolean directParsing = false;
+    private CompilationCache cache;
+
+    /**
+     * @param threads number of worker threads
+     * @param outputDirectory directory to write the .css files to, or null to write them next to their source
+     * @param errorOut stream that compile errors are reported to
+     */
+    public BatchCompiler(int threads, Path outputDirectory, PrintStream errorOut) {
+        this.threads = threads;
+        this.outputDirectory = outputDirectory;
+        this.errorOut = errorOut;
+
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Checks, evaluates and generates every file in a single pass, see Pipeline.generateFused.
+     * The check and transform stages are part of generate then.
+     */
+    public void setFused(boolean fused) {
+        this.fused = fused;
+    }
+
+    /**
+     * Parses straight to the AST without an Antlr parse tree, see Pipeline.setDirectParsing.
+     */
+    public void setDirectParsing(boolean directParsing) {
+        this.directParsing = directParsing;
+    }
+
+    /**
+     * Looks every source up in the cache first, files with a source that was compiled before
+     * skip all stages. Without a cache (the default) the CSS is streamed into the files.
+     */
+    public void setCache(CompilationCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Compiles every .icss file found in the given paths. Directories are walked recursively.
+     * @param roots files and/or directories
+     * @return true when every file compiled without errors
+     */
+    public boolean compile(List<Path> roots) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Path root : roots) {
+            collectSources(root, sources);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new CompileTask(sources, 0, sources.size()));
+        } finally {
+            pool.shutdown();
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        return failed.sum() == 0;
+    }
+
+    private void collectSources(Path root, List<Source> sources) throws IOException {
+        if (!Files.isDirectory(root)) {
+            sources.add(new Source(root, root.getParent()));
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(BatchCompiler::isIcssFile).sorted().collect(Collectors.toList())) {
+                sources.add(new Source(path, root));
+            }
+        }
+    }
+
+    private static boolean isIcssFile(Path path) {
+        return Files.isRegularFile(path) && path.getFileName().toString().endsWith(".icss");
+    }
+
+    private void compileSource(Source source) {
+        Pipeline pipeline = pipelines.get();
+        pipeline.setDirectParsing(directParsing);
+
+        try {
+            long start = System.nanoTime();
+            String input = Files.readString(source.path, StandardCharsets.UTF_8);
+
+            if (cache != null) {
+                compileCached(pipeline, source, input, start);
+                return;
+            }
+
+            // The CSS is streamed straight into the file, generate includes the time spent writing
+            boolean valid = runStages(pipeline, input, start, generating -> writeTarget(generating, source));
+            if (!valid) {
+                fail(source, pipeline.getErrors());
+                return;
+            }
+
+            compiled.increment();
+        } catch (IOException e) {
+            fail(source, List.of(e.toString()));
+        }
+    }
+
+    private void compileCached(Pipeline pipeline, Source source, String input, long start) throws IOException {
+        CompilationResult result;
+        try {
+            result = cache.compile(input, cacheMode(), text -> {
+                StringBuilder css = new StringBuilder();
+                try {
+                    boolean valid = runStages(pipeline, text, start, generating -> generateTo(generating, css));
+                    return new CompilationResult(valid ? css.toString() : null, pipeline.getErrors());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (!result.isSuccessful()) {
+            fail(source, result.getErrors());
+            return;
+        }
+
+        writeTarget(source, file -> {
+            Files.writeString(file, result.getCss(), StandardCharsets.UTF_8);
+            return true;
+        });
+
+        compiled.increment();
+    }
+
+    // The fused and staged passes and the two parsers are cached apart, so a cache that is shared
+    // between runs never gives one mode the output of another
+    private String cacheMode() {
+        return (fused ? "fused" : CompilationCache.STAGED) + (directParsing ? "+direct-parse" : "");
+    }
+
+    /**
+     * Runs every stage on the source and records their times, starting at the given time.
+     * @return false when the source has errors, they are in the errors of the pipeline
+     */
+    private boolean runStages(Pipeline pipeline, String input, long start, Output output) throws IOException {
+        pipeline.parseString(input);
+        start = record(Stage.PARSE, start);
+
+        if (!pipeline.isParsed()) {
+            return false;
+        }
+
+        if (!fused) {
+            boolean valid = pipeline.check();
+            start = record(Stage.CHECK, start);
+
+            if (!valid) {
+                return false;
+            }
+
+            pipeline.transform();
+            start = record(Stage.TRANSFORM, start);
+        }
+
+        boolean valid = output.generate(pipeline);
+        record(Stage.GENERATE, start);
+        return valid;
+    }
+
+    // Writes the CSS of a checked pipeline somewhere, false when the fused pass found errors
+    private interface Output {
+        boolean generate(Pipeline pipeline) throws IOException;
+    }
+
+    private boolean generateTo(Pipeline pipeline, Appendable out) throws IOException {
+        if (fused) {
+            return pipeline.generateFused(out);
+        }
+
+        pipeline.generate(out);
+        return true;
+    }
+
+    private boolean writeTarget(Pipeline pipeline, Source source) throws IOException {
+        return writeTarget(source, file -> {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                if (fused) {
+                    return pipeline.generateFused(channel);
+                }
+                pipeline.generate(channel);
+                return true;
+            }
+        });
+    }
+
+    /*
+     The CSS is written to a temporary file next to the target, which only takes the place of the
+     target once it is complete. So a source with errors leaves the CSS of its last good compile,
+     in every mode, and a reader never sees half a file.
+     */
+    private boolean writeTarget(Source source, TargetWriter writer) throws IOException {
+        Path target = source.target(outputDirectory);
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        boolean moved = false;
+        try {
+            if (writer.write(temporary)) {
+                move(temporary, target);
+                moved = true;
+            }
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        return moved;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Writes the CSS to the file, false when the fused pass found errors
+    private interface TargetWriter {
+        boolean write(Path file) throws IOException;
+    }
+
+    private long record(Stage stage, long start) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()].add(now - start);
+        return now;
+    }
+
+    private void fail(Source source, List<String> errors) {
+        failed.increment();
+
+        // Build the whole report first so lines of different files don't interleave
+        StringBuilder report = new StringBuilder();
+        for (String error : errors) {
+            report.append(source.path).append(": ").append(error).append(System.lineSeparator());
+        }
+        errorOut.print(report);
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()].sum();
+    }
+
+    public long getCompiledCount() {
+        return compiled.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Prints the number of files, throughput and the time spent in every stage.
+     * Stage times are summed over all workers, so together they can exceed the elapsed time.
+     */
+    public void printReport(PrintStream out) {
+        long files = compiled.sum() + failed.sum();
+        double seconds = elapsedNanos / 1e9;
+        double filesPerSecond = seconds > 0 ? files / seconds : 0;
+
+        out.printf("Compiled %d files (%d failed) in %.3fs on %d threads, %.1f files/sec%n",
+                files, failed.sum(), seconds, threads, filesPerSecond);
+        for (Stage stage : Stage.values()) {
+            out.printf("  %-10s %10.3fs%n", stage.name().toLowerCase(), getStageNanos(stage) / 1e9);
+        }
+        if (cache != null) {
+            out.printf("  cache      %d hits, %d disk hits, %d misses, %d evictions%n",
+                    cache.getHitCount(), cache.getDiskHitCount(), cache.getMissCount(), cache.getEvictionCount());
+        }
+    }
+
+    // Splits the list of sources in halves until a single file remains, idle workers steal the other halves
+    private class CompileTask extends RecursiveAction {
+        private final List<Source> sources;
+        private final int from;
+        private final int to;
+
+        CompileTask(List<Source> sources, int from, int to) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    compileSource(sources.get(from));
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new CompileTask(sources, from, middle), new CompileTask(sources, middle, to));
+        }
+    }
+
+    private static class Source {
+        final Path path;
+        // Directory the source was found in, used to mirror the tree in the output directory
+        final Path root;
+
+        Source(Path path, Path root) {
+            this.path = path;
+            this.root = root;
+        }
+
+        Path target(Path outputDirectory) {
+            String name = path.getFileName().toString();
+            String baseName = name.endsWith(".icss") ? name.substring(0, name.length() - ".icss".length()) : name;
+            String cssName = baseName + ".css";
+
+            if (outputDirectory == null) {
+                return path.resolveSibling(cssName);
+            }
+
+            Path relative = root == null ? path.getFileName() : root.relativize(path);
+            return outputDirectory.resolve(relative).resolveSibling(cssName);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless entry point, compiles .icss files to .css without starting JavaFX.
+ *
+ * Usage: Main [--out DIR] [--threads N] [--fused] [--direct-parse] [--cache N] [--cache-dir DIR] PATH...
+ */
+public class Main {
+    private static final String USAGE = "Usage: Main [--out DIR] [--threads N] [--fused] [--direct-parse] [--cache N] [--cache-dir DIR] PATH...";
+    // Entries kept in memory when only --cache-dir is given
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    public static void main(String[] args) throws IOException {
+        Path outputDirectory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean fused = false;
+        boolean directParsing = false;
+        int cacheSize = 0;
+        Path cacheDirectory = null;
+        List<Path> paths = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    outputDirectory = Path.of(requireValue(args, ++i));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i));
+                    break;
+                case "--fused":
+                    fused = true;
+                    break;
+                case "--direct-parse":
+                    directParsing = true;
+                    break;
+                case "--cache":
+                    cacheSize = Integer.parseInt(requireValue(args, ++i));
+                    break;
+                case "--cache-dir":
+                    cacheDirectory = Path.of(requireValue(args, ++i));
+                    break;
+                case "--help":
+                    System.out.println(USAGE);
+                    return;
+                default:
+                    paths.add(Path.of(args[i]));
+                    break;
+            }
+        }
+
+        if (paths.isEmpty() || threads < 1 || cacheSize < 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        BatchCompiler compiler = new BatchCompiler(threads, outputDirectory, System.err);
+        compiler.setFused(fused);
+        compiler.setDirectParsing(directParsing);
+        if (cacheSize > 0 || cacheDirectory != null) {
+            compiler.setCache(new CompilationCache(cacheSize > 0 ? cacheSize : DEFAULT_CACHE_SIZE, cacheDirectory));
+        }
+        boolean success = compiler.compile(paths);
+        compiler.printReport(System.out);
+
+        if (!success) {
+            System.exit(1);
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        return args[index];
+    }
+}
@@ -0,0 +1,99 @@
+package nl.han.ica.icss.generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Appendable that encodes chars as UTF-8 into a fixed size buffer and writes the buffer to a
+ * channel whenever it fills up. The buffer is kept between uses, see open and close.
+ * A surrogate without its other half is written as '?', like String.getBytes does.
+ */
+class ByteChannelWriter implements Appendable {
+    private final ByteBuffer buffer;
+    private WritableByteChannel channel;
+    // First half of a surrogate pair, waiting for the second half
+    private char highSurrogate = 0;
+
+    ByteChannelWriter(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    void open(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.clear();
+        highSurrogate = 0;
+    }
+
+    void close() {
+        channel = null;
+    }
+
+    // Writes what is in the buffer, the output ends here so a waiting high surrogate is written as '?'
+    void flush() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            append('?');
+        }
+        drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public Appendable append(CharSequence text) throws IOException {
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        // A code point takes at most 4 bytes
+        if (buffer.remaining() < 4) {
+            drain();
+        }
+
+        if (highSurrogate != 0 && !Character.isLowSurrogate(c)) {
+            highSurrogate = 0;
+            buffer.put((byte) '?');
+        }
+
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xc0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3f)));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            if (highSurrogate == 0) {
+                buffer.put((byte) '?');
+                return this;
+            }
+            int codePoint = Character.toCodePoint(highSurrogate, c);
+            highSurrogate = 0;
+            buffer.put((byte) (0xf0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+        } else {
+            buffer.put((byte) (0xe0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (c & 0x3f)));
+        }
+        return this;
+    }
+}
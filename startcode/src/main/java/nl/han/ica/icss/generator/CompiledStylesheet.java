@@ -0,0 +1,698 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.transforms.ExpressionProgram;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A checked stylesheet compiled to JVM bytecode, for stylesheets that are rendered over and
+ * over with other values for their globals, like themes. The statements of a StylesheetProgram
+ * are translated to generated classes: text that doesn't depend on a variable is written as
+ * one constant string, expressions become int arithmetic on local variables and only the
+ * declarations in if and else bodies are decided while rendering. The classes are loaded as
+ * hidden classes, so they are unloaded again together with the CompiledStylesheet.
+ *
+ * A large stylesheet is split over many classes that each run once per render. The JIT
+ * compiles those by the number of calls, so they only run at full speed after a few thousand
+ * renders. A large stylesheet that isn't rendered that often is better off with the
+ * StylesheetProgram. A single rule that is too large for one method is rendered by the
+ * StylesheetProgram anyway.
+ *
+ * The output is the same as StylesheetProgram.render gives.
+ */
+public class CompiledStylesheet {
+    // Estimated size of the code in a class. A method can hold 64 kB of code, but the JIT
+    // doesn't compile methods of over 8000 bytes, about 4 kB leaves room for a low estimate.
+    private static final int MAX_CLASS_SIZE = 4 * 1024;
+    // Longest string constant, its UTF-8 form can't be over 64 kB
+    private static final int MAX_TEXT_LENGTH = 16 * 1024;
+
+    private static final String PACKAGE = "nl/han/ica/icss/generator/";
+    private static final AtomicInteger CLASS_COUNT = new AtomicInteger();
+    // Hidden classes came with Java 15
+    private static final boolean HIDDEN_CLASSES = Runtime.version().feature() >= 15;
+
+    /**
+     * Implemented by the generated classes, each one writes a part of the stylesheet.
+     */
+    interface Chunk {
+        void render(boolean[] overridden, int[] globals, Appendable out) throws IOException;
+    }
+
+    private final StylesheetProgram program;
+    private final int globalCount;
+    private final Chunk[] chunks;
+    // Length of the CSS with the values of the stylesheet, the output of render(Variables) starts out this big
+    private final int sizeHint;
+
+    private CompiledStylesheet(StylesheetProgram program, Chunk[] chunks) {
+        this.program = program;
+        this.globalCount = program.globalCount();
+        this.chunks = chunks;
+        // Other values hardly change the length
+        sizeHint = render(newVariables()).length() + 16;
+    }
+
+    /**
+     * Checks the stylesheet with the Checker and compiles it.
+     * @throws IllegalArgumentException when the stylesheet has semantic errors
+     */
+    public static CompiledStylesheet compile(AST ast) {
+        new Checker().check(ast);
+        List<SemanticError> errors = ast.getErrors();
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Stylesheet has errors: " + errors);
+        }
+        return compile(new StylesheetProgram(ast));
+    }
+
+    public static CompiledStylesheet compile(StylesheetProgram program) {
+        int[] code = program.getCode();
+        List<Chunk> chunks = new ArrayList<>();
+
+        ChunkWriter writer = new ChunkWriter(program);
+        int pc = 0;
+        while (pc < code.length) {
+            if (code[pc] == StylesheetProgram.GLOBAL) {
+                writer.writeGlobal(code[pc + 1], code[pc + 2]);
+                pc += 3;
+            } else {
+                int size = ChunkWriter.estimateStylerule(program, code, pc);
+                if (size > MAX_CLASS_SIZE) {
+                    // The rule alone is too large for a method, the program renders it
+                    if (!writer.isEmpty()) {
+                        chunks.add(define(writer.finish()));
+                        writer = new ChunkWriter(program);
+                    }
+                    int end = ChunkWriter.endOfStylerule(code, pc);
+                    chunks.add(new InterpretedStylerule(program, pc, end));
+                    pc = end;
+                    continue;
+                }
+                if (!writer.isEmpty() && writer.estimatedSize + size > MAX_CLASS_SIZE) {
+                    chunks.add(define(writer.finish()));
+                    writer = new ChunkWriter(program);
+                }
+                pc = writer.writeStylerule(code, pc);
+            }
+
+            if (writer.estimatedSize > MAX_CLASS_SIZE) {
+                chunks.add(define(writer.finish()));
+                writer = new ChunkWriter(program);
+            }
+        }
+        if (!writer.isEmpty() || chunks.isEmpty()) {
+            chunks.add(define(writer.finish()));
+        }
+
+        return new CompiledStylesheet(program, chunks.toArray(new Chunk[0]));
+    }
+
+    /**
+     * @return variables that keep the values the stylesheet assigns until they are set
+     */
+    public Variables newVariables() {
+        return program.newVariables();
+    }
+
+    public String render(Variables variables) {
+        return Generator.toString(out -> render(variables, out), sizeHint);
+    }
+
+    /**
+     * Writes the CSS of the stylesheet with the given variables.
+     */
+    public void render(Variables variables, Appendable out) throws IOException {
+        if (variables.program != program) {
+            throw new IllegalArgumentException("Variables of another stylesheet");
+        }
+
+        // The globals take the first slots, the overridden ones are in there already
+        int[] globals = Arrays.copyOf(variables.values, globalCount);
+        try {
+            for (Chunk chunk : chunks) {
+                chunk.render(variables.overridden, globals, out);
+            }
+        } catch (UncheckedIOException e) {
+            // From Generator.appendInt
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the number of generated classes, for tests
+     */
+    int getChunkCount() {
+        return chunks.length;
+    }
+
+    // Package-private for tests
+    static Chunk define(byte[] bytes) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Class<?> chunkClass;
+            if (HIDDEN_CLASSES) {
+                chunkClass = lookup.defineHiddenClass(bytes, true).lookupClass();
+            } else {
+                // The class stays loaded as long as this one
+                chunkClass = lookup.defineClass(bytes);
+            }
+            return (Chunk) chunkClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Generated class can't be loaded", e);
+        }
+    }
+
+    // Writes one generated class: a constructor and render, with the statements given to it in order
+    private static class ChunkWriter implements Opcodes {
+        // Locals of render
+        private static final int OVERRIDDEN = 1;
+        private static final int GLOBALS = 2;
+        private static final int OUT = 3;
+        private static final int FIRST_FREE_LOCAL = 4;
+
+        private static final String APPENDABLE = Type.getInternalName(Appendable.class);
+        private static final String APPEND_DESCRIPTOR = "(Ljava/lang/CharSequence;)Ljava/lang/Appendable;";
+
+        private final StylesheetProgram program;
+        private final int globalCount;
+        private final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        private final MethodVisitor method;
+        private final String ruleEnd;
+
+        // Output that is known up front and isn't written yet
+        private final StringBuilder text = new StringBuilder();
+        private int estimatedSize = 0;
+
+        // Local per slot and per declaration of the rule that is written
+        private final Map<Integer, Integer> slotLocals = new HashMap<>();
+        private final Map<Integer, Label> labels = new HashMap<>();
+        private int nextLocal;
+
+        ChunkWriter(StylesheetProgram program) {
+            this.program = program;
+            this.globalCount = program.globalCount();
+
+            StringBuilder end = new StringBuilder();
+            new Generator().generateRuleEnd(end);
+            ruleEnd = end.toString();
+
+            String name = PACKAGE + "CompiledStylesheet$Chunk" + CLASS_COUNT.incrementAndGet();
+            classWriter.visit(V13, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, name, null, "java/lang/Object",
+                    new String[]{Type.getInternalName(Chunk.class)});
+
+            MethodVisitor constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+            constructor.visitCode();
+            constructor.visitVarInsn(ALOAD, 0);
+            constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+            constructor.visitInsn(RETURN);
+            constructor.visitMaxs(0, 0);
+            constructor.visitEnd();
+
+            method = classWriter.visitMethod(ACC_PUBLIC, "render", "([Z[I" + Type.getDescriptor(Appendable.class) + ")V",
+                    null, new String[]{Type.getInternalName(IOException.class)});
+            method.visitCode();
+        }
+
+        // True while nothing is written yet
+        boolean isEmpty() {
+            return estimatedSize == 0 && text.length() == 0;
+        }
+
+        /*
+         Estimates the size of the code writeStylerule gives for the rule in code[start], before
+         anything is written. It counts a little more than the writer, so it doesn't come out low.
+         */
+        static int estimateStylerule(StylesheetProgram program, int[] code, int start) {
+            int size = 0;
+            // Property of every declaration and whether it is in an if or else body
+            List<Integer> properties = new ArrayList<>();
+            List<Boolean> conditional = new ArrayList<>();
+            int branches = 0;
+            Deque<Integer> branchEnds = new ArrayDeque<>();
+            int end = endOfStylerule(code, start) - 1;
+            for (int pc = start + length(code[start]); pc < end; pc += length(code[pc])) {
+                while (!branchEnds.isEmpty() && branchEnds.peek() == pc) {
+                    branchEnds.pop();
+                }
+                size += 8;
+                switch (code[pc]) {
+                    case StylesheetProgram.ASSIGN:
+                        size += 4 * program.getExpression(code[pc + 2]).getCode().length;
+                        break;
+                    case StylesheetProgram.COPY:
+                        size += 8;
+                        break;
+                    case StylesheetProgram.DECLARE:
+                        size += 4 * program.getExpression(code[pc + 2]).getCode().length;
+                        properties.add(code[pc + 1]);
+                        conditional.add(!branchEnds.isEmpty());
+                        break;
+                    case StylesheetProgram.JUMP_IF_FALSE:
+                        size += 4 * program.getExpression(code[pc + 1]).getCode().length;
+                        branchEnds.push(code[pc + 2]);
+                        branches++;
+                        break;
+                    case StylesheetProgram.JUMP:
+                        branchEnds.pop();
+                        branchEnds.push(code[pc + 1]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            // Like writeDeclaration: a declaration that is overwritten for sure isn't written, the
+            // others check every later conditional declaration of the property
+            Map<Integer, Integer> laterConditional = new HashMap<>();
+            Set<Integer> overwritten = new HashSet<>();
+            for (int i = properties.size() - 1; i >= 0; i--) {
+                int property = properties.get(i);
+                if (overwritten.contains(property)) {
+                    continue;
+                }
+                int later = laterConditional.getOrDefault(property, 0);
+                size += 16;
+                if (conditional.get(i) || later > 0) {
+                    size += 32 + 8 * later;
+                }
+                if (conditional.get(i)) {
+                    laterConditional.put(property, later + 1);
+                } else {
+                    overwritten.add(property);
+                }
+            }
+            return size + 8 * branches;
+        }
+
+        // The pc after the END_RULE of the rule in code[start]
+        static int endOfStylerule(int[] code, int start) {
+            int pc = start;
+            while (code[pc] != StylesheetProgram.END_RULE) {
+                pc += length(code[pc]);
+            }
+            return pc + length(code[pc]);
+        }
+
+        byte[] finish() {
+            flushText();
+            method.visitInsn(RETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+            classWriter.visitEnd();
+            return classWriter.toByteArray();
+        }
+
+        // if (!overridden[slot]) globals[slot] = expression;
+        void writeGlobal(int slot, int expression) {
+            if (slot >= globalCount) {
+                throw new IllegalArgumentException("Global in slot " + slot + " comes after the other variables");
+            }
+
+            Label skip = new Label();
+            method.visitVarInsn(ALOAD, OVERRIDDEN);
+            pushInt(slot);
+            method.visitInsn(BALOAD);
+            method.visitJumpInsn(IFNE, skip);
+            method.visitVarInsn(ALOAD, GLOBALS);
+            pushInt(slot);
+            writeExpression(program.getExpression(expression));
+            method.visitInsn(IASTORE);
+            method.visitLabel(skip);
+            estimatedSize += 16;
+        }
+
+        /*
+         Writes the statements from RULE up to END_RULE. First the variables and declarations
+         are evaluated into locals, then the declarations that aren't overwritten are written.
+         Returns the pc after the rule.
+         */
+        int writeStylerule(int[] code, int start) {
+            slotLocals.clear();
+            labels.clear();
+            nextLocal = FIRST_FREE_LOCAL;
+
+            // Find the declarations, the slots the rule assigns and the jump targets
+            List<DeclarationInfo> declarations = new ArrayList<>();
+            Deque<Integer> branchEnds = new ArrayDeque<>();
+            int pc = start + length(code[start]);
+            while (code[pc] != StylesheetProgram.END_RULE) {
+                while (!branchEnds.isEmpty() && branchEnds.peek() == pc) {
+                    branchEnds.pop();
+                }
+                switch (code[pc]) {
+                    case StylesheetProgram.ASSIGN:
+                    case StylesheetProgram.COPY:
+                        slotLocal(code[pc + 1]);
+                        break;
+                    case StylesheetProgram.DECLARE:
+                        declarations.add(new DeclarationInfo(code[pc + 1], program.getExpression(code[pc + 2]),
+                                !branchEnds.isEmpty()));
+                        break;
+                    case StylesheetProgram.JUMP_IF_FALSE:
+                        branchEnds.push(code[pc + 2]);
+                        labels.put(code[pc + 2], new Label());
+                        break;
+                    case StylesheetProgram.JUMP:
+                        // Ends the if body, the else body runs up to the target
+                        branchEnds.pop();
+                        branchEnds.push(code[pc + 1]);
+                        labels.put(code[pc + 1], new Label());
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected statement " + code[pc] + " in a rule at " + pc);
+                }
+                pc += length(code[pc]);
+            }
+            int end = pc;
+
+            // Every local gets a value first, the verifier doesn't know that a declaration
+            // is only written when it was evaluated
+            for (DeclarationInfo declaration : declarations) {
+                if (!declaration.isConstant()) {
+                    declaration.valueLocal = nextLocal++;
+                }
+                if (declaration.conditional) {
+                    declaration.flagLocal = nextLocal++;
+                }
+            }
+            for (int local = FIRST_FREE_LOCAL; local < nextLocal; local++) {
+                method.visitInsn(ICONST_0);
+                method.visitVarInsn(ISTORE, local);
+            }
+
+            // Evaluate
+            int declaration = 0;
+            pc = start + length(code[start]);
+            while (pc < end) {
+                visitLabel(pc);
+                switch (code[pc]) {
+                    case StylesheetProgram.ASSIGN:
+                        writeExpression(program.getExpression(code[pc + 2]));
+                        method.visitVarInsn(ISTORE, slotLocal(code[pc + 1]));
+                        break;
+                    case StylesheetProgram.COPY:
+                        writeLoad(code[pc + 2]);
+                        method.visitVarInsn(ISTORE, slotLocal(code[pc + 1]));
+                        break;
+                    case StylesheetProgram.DECLARE:
+                        writeEvaluation(declarations.get(declaration++));
+                        break;
+                    case StylesheetProgram.JUMP_IF_FALSE:
+                        writeExpression(program.getExpression(code[pc + 1]));
+                        method.visitJumpInsn(IFEQ, labels.get(code[pc + 2]));
+                        break;
+                    case StylesheetProgram.JUMP:
+                        method.visitJumpInsn(GOTO, labels.get(code[pc + 1]));
+                        break;
+                    default:
+                        break;
+                }
+                estimatedSize += 8;
+                pc += length(code[pc]);
+            }
+            visitLabel(end);
+
+            // Write
+            text.append(program.getRuleStart(code[start + 1]));
+            for (int i = 0; i < declarations.size(); i++) {
+                writeDeclaration(declarations, i);
+            }
+            text.append(ruleEnd);
+
+            return end + length(code[end]);
+        }
+
+        private void writeEvaluation(DeclarationInfo declaration) {
+            if (!declaration.isConstant()) {
+                writeExpression(declaration.expression);
+                method.visitVarInsn(ISTORE, declaration.valueLocal);
+            }
+            if (declaration.conditional) {
+                method.visitInsn(ICONST_1);
+                method.visitVarInsn(ISTORE, declaration.flagLocal);
+            }
+        }
+
+        // A declaration is written when it was evaluated and no later one of the property was
+        private void writeDeclaration(List<DeclarationInfo> declarations, int index) {
+            DeclarationInfo declaration = declarations.get(index);
+            List<DeclarationInfo> laterConditional = new ArrayList<>();
+            for (int i = index + 1; i < declarations.size(); i++) {
+                DeclarationInfo later = declarations.get(i);
+                if (later.property == declaration.property) {
+                    if (!later.conditional) {
+                        return;
+                    }
+                    laterConditional.add(later);
+                }
+            }
+
+            String start = program.getDeclarationStart(declaration.property);
+            ExpressionType unit = declaration.expression.getUnit();
+            if (!declaration.conditional && laterConditional.isEmpty()) {
+                if (declaration.isConstant()) {
+                    appendConstant(declaration, start);
+                } else {
+                    text.append(start);
+                    writeValue(declaration);
+                    text.append(suffix(unit));
+                }
+                return;
+            }
+
+            flushText();
+            Label skip = new Label();
+            if (declaration.conditional) {
+                method.visitVarInsn(ILOAD, declaration.flagLocal);
+                method.visitJumpInsn(IFEQ, skip);
+            }
+            for (DeclarationInfo later : laterConditional) {
+                method.visitVarInsn(ILOAD, later.flagLocal);
+                method.visitJumpInsn(IFNE, skip);
+            }
+
+            // The text of the declaration is only written in the branch
+            if (declaration.isConstant()) {
+                appendConstant(declaration, start);
+            } else {
+                text.append(start);
+                writeValue(declaration);
+                text.append(suffix(unit));
+            }
+            flushText();
+            method.visitLabel(skip);
+            estimatedSize += 16 + 8 * laterConditional.size();
+        }
+
+        private void appendConstant(DeclarationInfo declaration, String start) {
+            text.append(start);
+            text.append(Generator.toString(out ->
+                    StylesheetProgram.writeValue(declaration.expression.getUnit(), declaration.constantValue(), out)));
+            text.append(";\n");
+        }
+
+        // Writes the text so far and then the value in the local
+        private void writeValue(DeclarationInfo declaration) {
+            switch (declaration.expression.getUnit()) {
+                case PIXEL:
+                case PERCENTAGE:
+                    flushText();
+                    method.visitVarInsn(ALOAD, OUT);
+                    method.visitVarInsn(ILOAD, declaration.valueLocal);
+                    method.visitMethodInsn(INVOKESTATIC, PACKAGE + "Generator", "appendInt",
+                            "(" + Type.getDescriptor(Appendable.class) + "I)V", false);
+                    break;
+                case COLOR:
+                    flushText();
+                    method.visitVarInsn(ALOAD, OUT);
+                    method.visitVarInsn(ILOAD, declaration.valueLocal);
+                    method.visitMethodInsn(INVOKESTATIC, PACKAGE + "StylesheetProgram", "appendColor",
+                            "(" + Type.getDescriptor(Appendable.class) + "I)V", false);
+                    break;
+                default:
+                    // The Generator writes no value for the other literals either
+                    break;
+            }
+            estimatedSize += 8;
+        }
+
+        private static String suffix(ExpressionType unit) {
+            switch (unit) {
+                case PIXEL:
+                    return "px;\n";
+                case PERCENTAGE:
+                    return "%;\n";
+                default:
+                    return ";\n";
+            }
+        }
+
+        private void writeExpression(ExpressionProgram expression) {
+            int[] code = expression.getCode();
+            int pc = 0;
+            while (pc < code.length) {
+                switch (code[pc]) {
+                    case ExpressionProgram.CONST:
+                        pushInt(code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case ExpressionProgram.LOAD:
+                        writeLoad(code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case ExpressionProgram.ADD:
+                        method.visitInsn(IADD);
+                        pc++;
+                        break;
+                    case ExpressionProgram.SUBTRACT:
+                        method.visitInsn(ISUB);
+                        pc++;
+                        break;
+                    case ExpressionProgram.MULTIPLY:
+                        method.visitInsn(IMUL);
+                        pc++;
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown instruction " + code[pc] + " at " + pc);
+                }
+                estimatedSize += 4;
+            }
+        }
+
+        // Globals are read from the array, the variables of a rule are locals
+        private void writeLoad(int slot) {
+            if (slot < globalCount) {
+                method.visitVarInsn(ALOAD, GLOBALS);
+                pushInt(slot);
+                method.visitInsn(IALOAD);
+            } else {
+                method.visitVarInsn(ILOAD, slotLocal(slot));
+            }
+        }
+
+        private int slotLocal(int slot) {
+            Integer local = slotLocals.get(slot);
+            if (local == null) {
+                local = nextLocal++;
+                slotLocals.put(slot, local);
+            }
+            return local;
+        }
+
+        private void visitLabel(int pc) {
+            Label label = labels.get(pc);
+            if (label != null) {
+                method.visitLabel(label);
+            }
+        }
+
+        private void flushText() {
+            for (int from = 0; from < text.length(); from += MAX_TEXT_LENGTH) {
+                method.visitVarInsn(ALOAD, OUT);
+                method.visitLdcInsn(text.substring(from, Math.min(text.length(), from + MAX_TEXT_LENGTH)));
+                method.visitMethodInsn(INVOKEINTERFACE, APPENDABLE, "append", APPEND_DESCRIPTOR, true);
+                method.visitInsn(POP);
+                estimatedSize += 8;
+            }
+            text.setLength(0);
+        }
+
+        private void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                method.visitInsn(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                method.visitIntInsn(BIPUSH, value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                method.visitIntInsn(SIPUSH, value);
+            } else {
+                method.visitLdcInsn(value);
+            }
+        }
+
+        private static int length(int statement) {
+            switch (statement) {
+                case StylesheetProgram.RULE:
+                case StylesheetProgram.JUMP:
+                    return 2;
+                case StylesheetProgram.END_RULE:
+                    return 1;
+                default:
+                    return 3;
+            }
+        }
+    }
+
+    // A rule that is too large to compile, rendered by the program instead
+    private static class InterpretedStylerule implements Chunk {
+        private final StylesheetProgram program;
+        private final int start;
+        private final int end;
+
+        InterpretedStylerule(StylesheetProgram program, int start, int end) {
+            this.program = program;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void render(boolean[] overridden, int[] globals, Appendable out) throws IOException {
+            program.renderStylerule(start, end, globals, out);
+        }
+    }
+
+    private static class DeclarationInfo {
+        final int property;
+        final ExpressionProgram expression;
+        // In an if or else body
+        final boolean conditional;
+        int valueLocal = -1;
+        int flagLocal = -1;
+
+        DeclarationInfo(int property, ExpressionProgram expression, boolean conditional) {
+            this.property = property;
+            this.expression = expression;
+            this.conditional = conditional;
+        }
+
+        // An expression without variables has the same value every time
+        boolean isConstant() {
+            int[] code = expression.getCode();
+            for (int pc = 0; pc < code.length; pc++) {
+                if (code[pc] == ExpressionProgram.LOAD) {
+                    return false;
+                }
+                if (code[pc] == ExpressionProgram.CONST) {
+                    // Skip the operand
+                    pc++;
+                }
+            }
+            return true;
+        }
+
+        int constantValue() {
+            return expression.run(new int[0], new int[expression.getMaxStack()]);
+        }
+    }
+}
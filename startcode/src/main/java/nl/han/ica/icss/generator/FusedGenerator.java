@@ -0,0 +1,459 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.datastructures.SymbolTable;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks, evaluates and generates in one walk over the tree, with a single scope table that
+ * holds the values of the variables (their type follows from the value). The AST isn't changed,
+ * so the same tree can be compiled again. The CSS is the same as Checker + Evaluator + Generator
+ * write for the tree.
+ *
+ * The errors are the same as the Checker's and in the same order. The Checker visits an else
+ * clause before its condition, but its errors are collected from the tree afterwards, in tree
+ * order, and that is the order they are added in here. Once an error is found no more CSS is
+ * written, so the output is incomplete and should be thrown away.
+ */
+public class FusedGenerator {
+    private static final int CHANNEL_BUFFER_SIZE = 8192;
+
+    // Stands in for the value of an expression with an error, its type is UNDEFINED
+    private static final Literal UNDEFINED = new ScalarLiteral(0);
+
+    private static final List<ExpressionType> NOT_ALLOWED_IN_OPERATIONS = Arrays.asList(ExpressionType.BOOL, ExpressionType.COLOR);
+
+    private final Generator generator = new Generator();
+    private ByteChannelWriter channelWriter;
+
+    private SymbolTable<Symbol, Literal> variableValues;
+    private List<SemanticError> errors;
+
+    // Declarations of the current rule in output order
+    private Symbol[] pendingProperties = new Symbol[16];
+    private Literal[] pendingValues = new Literal[16];
+    private int pendingSize = 0;
+    // Index of the last declaration per property id, to drop the ones that are overwritten.
+    // Only the ids of the pending declarations are read, so it is never cleared
+    private int[] lastIndex = new int[16];
+
+    // Variables assigned in the taken branches of the if clauses that are walked, with their
+    // new values. For the Checker a branch has a scope of its own, but the Evaluator doesn't
+    // give it one: a variable that was visible before the if clause keeps the new value.
+    private final List<Symbol> branchNames = new ArrayList<>();
+    private final List<Literal> branchValues = new ArrayList<>();
+    private int branchDepth = 0;
+
+    // Walks a node in a body, the context tells if the node is in a branch that is taken
+    private final ASTVisitor<Void, Boolean> bodyWalker = new ASTVisitor<>() {
+        @Override
+        public Void visitDeclaration(Declaration node, Boolean taken) {
+            walkDeclaration(node, taken);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node, Boolean taken) {
+            walkVariableAssignment(node, taken);
+            return null;
+        }
+
+        @Override
+        public Void visitIfClause(IfClause node, Boolean taken) {
+            walkIfClause(node, taken);
+            return null;
+        }
+    };
+
+    // Folds an expression into a literal and records the type errors the Checker would find
+    private final ASTVisitor<Literal, Void> expressionFolder = new ASTVisitor<>() {
+        @Override
+        public Literal visitNode(ASTNode node, Void context) {
+            return UNDEFINED;
+        }
+
+        @Override
+        public Literal visitLiteral(Literal node, Void context) {
+            return node;
+        }
+
+        @Override
+        public Literal visitVariableReference(VariableReference node, Void context) {
+            Literal value = variableValues.getVariable(node.getSymbol());
+            if (value == null) {
+                errors.add(new SemanticError("Variable: " + node.name + " not defined in scope"));
+                return UNDEFINED;
+            }
+            return value;
+        }
+
+        @Override
+        public Literal visitAddOperation(AddOperation node, Void context) {
+            return foldAddOrSubtract(node, 1);
+        }
+
+        @Override
+        public Literal visitSubtractOperation(SubtractOperation node, Void context) {
+            return foldAddOrSubtract(node, -1);
+        }
+
+        @Override
+        public Literal visitMultiplyOperation(MultiplyOperation node, Void context) {
+            int mark = errors.size();
+            Literal left = fold(node.getLhs());
+            Literal right = fold(node.getRhs());
+            ExpressionType leftType = typeOf(left);
+            ExpressionType rightType = typeOf(right);
+
+            String error = operandError(leftType, rightType);
+            if (leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR) {
+                error = "Multiply is only allowed with at least one scalar literal";
+            }
+
+            // The result has the unit of the operand that isn't a scalar
+            Literal unit = leftType != ExpressionType.SCALAR ? left : right;
+            if (error != null) {
+                errors.add(mark, new SemanticError(error));
+                return unit;
+            }
+            // An operand with an error makes the result undefined too
+            if (unit == UNDEFINED) {
+                return unit;
+            }
+            return Literal.numeric(unit.getType(), ((NumericLiteral) left).intValue() * ((NumericLiteral) right).intValue());
+        }
+    };
+
+    // Same as the Checker's types, UNDEFINED for anything that went wrong
+    private final ASTVisitor<ExpressionType, Void> literalTyper = new ASTVisitor<>() {
+        @Override
+        public ExpressionType visitNode(ASTNode node, Void context) {
+            return ExpressionType.UNDEFINED;
+        }
+
+        @Override
+        public ExpressionType visitPixelLiteral(PixelLiteral node, Void context) {
+            return ExpressionType.PIXEL;
+        }
+
+        @Override
+        public ExpressionType visitColorLiteral(ColorLiteral node, Void context) {
+            return ExpressionType.COLOR;
+        }
+
+        @Override
+        public ExpressionType visitScalarLiteral(ScalarLiteral node, Void context) {
+            return node == UNDEFINED ? ExpressionType.UNDEFINED : ExpressionType.SCALAR;
+        }
+
+        @Override
+        public ExpressionType visitBoolLiteral(BoolLiteral node, Void context) {
+            return ExpressionType.BOOL;
+        }
+
+        @Override
+        public ExpressionType visitPercentageLiteral(PercentageLiteral node, Void context) {
+            return ExpressionType.PERCENTAGE;
+        }
+    };
+
+    /**
+     * Writes the CSS for the tree to the output.
+     * @return the semantic errors, when there are any the output is incomplete
+     */
+    public List<SemanticError> generate(AST ast, Appendable out) throws IOException {
+        start();
+        try {
+            walkStylesheet(ast.root, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            clearPending();
+        }
+        return finish();
+    }
+
+    /**
+     * Evaluates the variable assignments at the top of a stylesheet, in order. An override
+     * takes the place of the value assigned to that variable, it isn't type checked.
+     * @param values receives the values of the global variables afterwards
+     * @return the semantic errors in the assignments
+     */
+    public List<SemanticError> evaluateVariableAssignments(List<VariableAssignment> assignments,
+                                                           Map<String, Literal> overrides, Map<String, Literal> values) {
+        start();
+        for (VariableAssignment assignment : assignments) {
+            String name = assignment.getName().name;
+            Literal override = overrides.get(name);
+            if (override != null) {
+                variableValues.putVariable(assignment.getName().getSymbol(), override);
+            } else {
+                walkVariableAssignment(assignment, true);
+            }
+            values.put(name, variableValues.getVariable(assignment.getName().getSymbol()));
+        }
+        return finish();
+    }
+
+    /**
+     * Writes the CSS for a single style rule, with the given global variables in scope.
+     * @return the semantic errors in the rule, when there are any nothing is written
+     */
+    public List<SemanticError> generateStylerule(Stylerule stylerule, Map<String, Literal> globals,
+                                                 Appendable out) throws IOException {
+        start();
+        for (Map.Entry<String, Literal> global : globals.entrySet()) {
+            variableValues.putVariable(Symbol.of(global.getKey()), global.getValue());
+        }
+
+        try {
+            walkStylerule(stylerule, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            clearPending();
+        }
+        return finish();
+    }
+
+    private void start() {
+        variableValues = new SymbolTable<>();
+        variableValues.pushScope();
+        errors = new ArrayList<>();
+        branchNames.clear();
+        branchValues.clear();
+        branchDepth = 0;
+    }
+
+    private List<SemanticError> finish() {
+        List<SemanticError> result = errors;
+        variableValues = null;
+        errors = null;
+        return result;
+    }
+
+    /**
+     * Writes the CSS for the tree as UTF-8 to the channel, through one reused buffer.
+     * @return the semantic errors, when there are any the output is incomplete
+     */
+    public List<SemanticError> generate(AST ast, WritableByteChannel channel) throws IOException {
+        if (channelWriter == null) {
+            channelWriter = new ByteChannelWriter(CHANNEL_BUFFER_SIZE);
+        }
+
+        channelWriter.open(channel);
+        try {
+            List<SemanticError> result = generate(ast, channelWriter);
+            channelWriter.flush();
+            return result;
+        } finally {
+            channelWriter.close();
+        }
+    }
+
+    private void walkStylesheet(Stylesheet stylesheet, Appendable out) {
+        for (ASTNode child : stylesheet.body) {
+            if (child instanceof Stylerule) {
+                walkStylerule((Stylerule) child, out);
+            } else {
+                child.accept(bodyWalker, true);
+            }
+        }
+    }
+
+    private void walkStylerule(Stylerule stylerule, Appendable out) {
+        variableValues.pushScope();
+        walkBody(stylerule.body, true);
+        variableValues.popScope();
+
+        if (errors.isEmpty()) {
+            generator.generateRuleStart(stylerule, out);
+            generatePending(out);
+            generator.generateRuleEnd(out);
+        }
+        clearPending();
+    }
+
+    private void walkBody(List<ASTNode> body, boolean taken) {
+        for (ASTNode child : body) {
+            child.accept(bodyWalker, taken);
+        }
+    }
+
+    private void walkDeclaration(Declaration declaration, boolean taken) {
+        int mark = errors.size();
+        Literal value = fold(declaration.getExpression());
+        ExpressionType type = typeOf(value);
+
+        String error = null;
+        Symbol property = declaration.getProperty().getSymbol();
+        if (property == PropertyName.WIDTH || property == PropertyName.HEIGHT) {
+            if (type != ExpressionType.PIXEL && type != ExpressionType.PERCENTAGE) {
+                error = "Size properties should be assigned a pixel literal or a percentage literal";
+            }
+        } else if (property == PropertyName.COLOR || property == PropertyName.BACKGROUND_COLOR) {
+            if (type != ExpressionType.COLOR) {
+                error = "Color properties should be assigned a color literal";
+            }
+        } else {
+            error = "Unknown property, choose from width, height, color or background-color";
+        }
+
+        if (error != null) {
+            errors.add(mark, new SemanticError(error));
+        } else if (taken) {
+            addPending(property, value);
+        }
+    }
+
+    private void walkVariableAssignment(VariableAssignment assignment, boolean taken) {
+        int mark = errors.size();
+        Literal value = fold(assignment.getExpression());
+        Symbol name = assignment.getName().getSymbol();
+
+        Literal previous = variableValues.getVariable(name);
+        if (previous != null && typeOf(previous) != typeOf(value)) {
+            errors.add(mark, new SemanticError("Variable type invalid, expected: " + typeOf(previous).name()
+                    + " but found: " + typeOf(value).name()));
+            return;
+        }
+
+        variableValues.putVariable(name, value);
+        if (taken && branchDepth > 0) {
+            branchNames.add(name);
+            branchValues.add(value);
+        }
+    }
+
+    // Both branches are walked so they are both checked, only the taken one adds declarations
+    private void walkIfClause(IfClause clause, boolean taken) {
+        int mark = errors.size();
+        Literal condition = fold(clause.getConditionalExpression());
+
+        boolean conditionTrue = false;
+        if (typeOf(condition) != ExpressionType.BOOL) {
+            errors.add(mark, new SemanticError("If statements can only use boolean expressions"));
+        } else {
+            conditionTrue = ((BoolLiteral) condition).value;
+        }
+
+        walkBranch(clause.body, taken && conditionTrue);
+        if (clause.getElseClause() != null) {
+            walkBranch(clause.getElseClause().body, taken && !conditionTrue);
+        }
+    }
+
+    private void walkBranch(List<ASTNode> body, boolean taken) {
+        int mark = branchNames.size();
+        branchDepth++;
+        variableValues.pushScope();
+        walkBody(body, taken);
+        variableValues.popScope();
+        branchDepth--;
+
+        // Gives the variables that are visible again their value from the branch, in the order
+        // they were assigned. In an enclosing branch that is an assignment in that branch too.
+        int end = branchNames.size();
+        for (int i = mark; i < end; i++) {
+            Symbol name = branchNames.get(i);
+            if (variableValues.getVariable(name) != null) {
+                variableValues.putVariable(name, branchValues.get(i));
+                if (branchDepth > 0) {
+                    branchNames.add(name);
+                    branchValues.add(branchValues.get(i));
+                }
+            }
+        }
+        branchNames.subList(mark, end).clear();
+        branchValues.subList(mark, end).clear();
+    }
+
+    private Literal foldAddOrSubtract(Operation operation, int sign) {
+        int mark = errors.size();
+        Literal left = fold(operation.getLhs());
+        Literal right = fold(operation.getRhs());
+        ExpressionType leftType = typeOf(left);
+        ExpressionType rightType = typeOf(right);
+
+        String error = operandError(leftType, rightType);
+        if (leftType != rightType) {
+            error = "You can only add or subtract with the same literal.";
+        }
+
+        // The Checker gives an operation the type of the operand that isn't a scalar
+        Literal unit = leftType != ExpressionType.SCALAR ? left : right;
+        if (error != null) {
+            errors.add(mark, new SemanticError(error));
+            return unit;
+        }
+        if (unit == UNDEFINED) {
+            return unit;
+        }
+        return Literal.numeric(left.getType(), ((NumericLiteral) left).intValue() + sign * ((NumericLiteral) right).intValue());
+    }
+
+    private static String operandError(ExpressionType leftType, ExpressionType rightType) {
+        if (NOT_ALLOWED_IN_OPERATIONS.contains(leftType) || NOT_ALLOWED_IN_OPERATIONS.contains(rightType)) {
+            return "Expressions cannot contain types " + NOT_ALLOWED_IN_OPERATIONS;
+        }
+        return null;
+    }
+
+    private Literal fold(Expression expression) {
+        if (expression == null) {
+            return UNDEFINED;
+        }
+        return expression.accept(expressionFolder, null);
+    }
+
+    private ExpressionType typeOf(Literal literal) {
+        return literal.accept(literalTyper, null);
+    }
+
+    private void addPending(Symbol property, Literal value) {
+        if (pendingSize == pendingProperties.length) {
+            pendingProperties = Arrays.copyOf(pendingProperties, pendingSize * 2);
+            pendingValues = Arrays.copyOf(pendingValues, pendingSize * 2);
+        }
+
+        pendingProperties[pendingSize] = property;
+        pendingValues[pendingSize] = value;
+        pendingSize++;
+    }
+
+    // Writes the pending declarations, a declaration is skipped when the property comes back later
+    private void generatePending(Appendable out) {
+        for (int i = 0; i < pendingSize; i++) {
+            int id = pendingProperties[i].getId();
+            if (id >= lastIndex.length) {
+                lastIndex = Arrays.copyOf(lastIndex, Math.max(id + 1, lastIndex.length * 2));
+            }
+            lastIndex[id] = i;
+        }
+
+        for (int i = 0; i < pendingSize; i++) {
+            if (lastIndex[pendingProperties[i].getId()] == i) {
+                generator.generateDeclaration(pendingProperties[i].getName(), pendingValues[i], out);
+            }
+        }
+    }
+
+    private void clearPending() {
+        Arrays.fill(pendingValues, 0, pendingSize, null);
+        Arrays.fill(pendingProperties, 0, pendingSize, null);
+        pendingSize = 0;
+    }
+}
@@ -6,61 +6,217 @@ import nl.han.ica.icss.ast.literals.ColorLiteral;
 import nl.han.ica.icss.ast.literals.PercentageLiteral;
 import nl.han.ica.icss.ast.literals.PixelLiteral;
 
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 
 public class Generator {
+    private static final int CHANNEL_BUFFER_SIZE = 8192;
+
+    // Reused by every generate call that writes to a channel
+    private ByteChannelWriter channelWriter;
+
+    // Writes the CSS for a child node to the output, nodes without output (variables, selectors) are skipped
+    private final ASTVisitor<Void, Appendable> childGenerator = new ASTVisitor<>() {
+        @Override
+        public Void visitStylerule(Stylerule node, Appendable out) {
+            generateStylerule(node, out);
+            return null;
+        }
+
+        @Override
+        public Void visitDeclaration(Declaration node, Appendable out) {
+            generateDeclaration(node, out);
+            return null;
+        }
+
+        @Override
+        public Void visitIfClause(IfClause node, Appendable out) {
+            recursiveChildGenerate(node, out);
+            return null;
+        }
+    };
+
+    // Writes the CSS value of an evaluated expression to the output
+    private final ASTVisitor<Void, Appendable> valueGenerator = new ASTVisitor<>() {
+        @Override
+        public Void visitPercentageLiteral(PercentageLiteral node, Appendable out) {
+            appendInt(out, node.value);
+            append(out, '%');
+            return null;
+        }
+
+        @Override
+        public Void visitPixelLiteral(PixelLiteral node, Appendable out) {
+            appendInt(out, node.value);
+            append(out, "px");
+            return null;
+        }
+
+        @Override
+        public Void visitColorLiteral(ColorLiteral node, Appendable out) {
+            append(out, node.value);
+            return null;
+        }
+    };
+
+    /**
+     * Something that writes CSS to an output, see toString.
+     */
+    @FunctionalInterface
+    public interface Output {
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    /**
+     * @return everything the output writes, collected in a string
+     */
+    public static String toString(Output output) {
+        return toString(output, 16);
+    }
+
+    /**
+     * Same as toString(Output), with room for about capacity chars up front.
+     */
+    public static String toString(Output output, int capacity) {
+        StringBuilder result = new StringBuilder(capacity);
+        try {
+            output.writeTo(result);
+        } catch (IOException e) {
+            // A StringBuilder doesn't do IO
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
     public String generate(AST ast) {
-        return recursiveChildGenerate(ast.root);
+        return toString(out -> generate(ast, out));
     }
 
-    private String recursiveChildGenerate(ASTNode parentNode) {
-        StringBuilder total = new StringBuilder();
+    /**
+     * Streams the CSS straight into the given output, nothing is buffered here.
+     */
+    public void generate(AST ast, Appendable out) throws IOException {
+        try {
+            recursiveChildGenerate(ast.root, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        for (ASTNode child : parentNode.getChildren()) {
-            if (child instanceof Stylerule) {
-                total.append(generateStylerule((Stylerule) child));
-            } else if (child instanceof Declaration) {
-                total.append(generateDeclaration((Declaration) child));
-            } else if (child instanceof IfClause) {
-                total.append(recursiveChildGenerate(child));
-            }
+    /**
+     * Streams the CSS as UTF-8 into the given channel through one fixed size buffer,
+     * so the memory used doesn't grow with the size of the output.
+     */
+    public void generate(AST ast, WritableByteChannel channel) throws IOException {
+        if (channelWriter == null) {
+            channelWriter = new ByteChannelWriter(CHANNEL_BUFFER_SIZE);
         }
 
-        return total.toString();
+        channelWriter.open(channel);
+        try {
+            generate(ast, channelWriter);
+            channelWriter.flush();
+        } finally {
+            channelWriter.close();
+        }
     }
 
-    private String generateDeclaration(Declaration declaration) {
-        StringBuilder result = new StringBuilder();
+    /**
+     * @return the CSS of a single evaluated style rule
+     */
+    public String generate(Stylerule stylerule) {
+        return toString(out -> generate(stylerule, out));
+    }
 
-        result.append("  ");
-        result.append(declaration.property.name);
-        result.append(": ");
-        result.append(toStringExpression(declaration.expression));
-        result.append(";\n");
+    /**
+     * Streams the CSS of a single evaluated style rule into the given output.
+     */
+    public void generate(Stylerule stylerule, Appendable out) throws IOException {
+        try {
+            generateStylerule(stylerule, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        return result.toString();
+    private void recursiveChildGenerate(ASTNode parentNode, Appendable out) {
+        for (int i = 0; i < parentNode.childCount(); i++) {
+            parentNode.childAt(i).accept(childGenerator, out);
+        }
     }
 
-    private String generateStylerule(Stylerule stylerule) {
-        StringBuilder result = new StringBuilder();
+    private void generateDeclaration(Declaration declaration, Appendable out) {
+        generateDeclaration(declaration.getProperty().name, declaration.getExpression(), out);
+    }
 
-        result.append(stylerule.selectors.stream().map(ASTNode::toString).collect(Collectors.joining(", ")));
-        result.append(" {\n");
-        result.append(recursiveChildGenerate(stylerule));
-        result.append("}\n\n");
+    // Also used by the FusedGenerator, so both write exactly the same CSS
+    void generateDeclaration(String property, Expression value, Appendable out) {
+        append(out, "  ");
+        append(out, property);
+        append(out, ": ");
+        if (value != null) {
+            value.accept(valueGenerator, out);
+        }
+        append(out, ";\n");
+    }
 
-        return result.toString();
+    private void generateStylerule(Stylerule stylerule, Appendable out) {
+        generateRuleStart(stylerule, out);
+        recursiveChildGenerate(stylerule, out);
+        generateRuleEnd(out);
     }
 
-    private String toStringExpression(Expression expression) {
-        if (expression instanceof PercentageLiteral) {
-            return ((PercentageLiteral) expression).value + "%";
-        } else if (expression instanceof PixelLiteral) {
-            return ((PixelLiteral) expression).value + "px";
-        } else if (expression instanceof ColorLiteral) {
-            return ((ColorLiteral) expression).value;
+    void generateRuleStart(Stylerule stylerule, Appendable out) {
+        for (int i = 0; i < stylerule.selectors.size(); i++) {
+            if (i > 0) {
+                append(out, ", ");
+            }
+            append(out, stylerule.selectors.get(i).toString());
+        }
+        append(out, " {\n");
+    }
+
+    void generateRuleEnd(Appendable out) {
+        append(out, "}\n\n");
+    }
+
+    // The visitors can't throw checked exceptions, so IO errors travel up unchecked
+    // and generate(AST, Appendable) turns them back into an IOException
+    private static void append(Appendable out, CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void append(Appendable out, char c) {
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes the digits one by one, Appendable has no append(int) and this saves a String per value.
+    // Also used by the StylesheetProgram
+    static void appendInt(Appendable out, int value) {
+        if (value < 0) {
+            append(out, '-');
         } else {
-            return "";
+            value = -value;
+        }
+
+        // Work with the negative value, it also covers Integer.MIN_VALUE
+        int divisor = 1;
+        while (value / divisor <= -10) {
+            divisor *= 10;
+        }
+        while (divisor != 0) {
+            append(out, (char) ('0' - value / divisor));
+            value %= divisor;
+            divisor /= 10;
         }
     }
-}
\ No newline at end of file
+}
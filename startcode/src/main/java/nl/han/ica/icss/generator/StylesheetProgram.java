@@ -0,0 +1,419 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.transforms.ExpressionProgram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A checked stylesheet compiled once into a flat program, to render it again and again with
+ * other values for its global variables (see Variables). Every expression becomes an
+ * ExpressionProgram and every variable an int slot, so rendering doesn't look up names or walk
+ * the tree, it runs through an int array of statements. The selectors and property names are
+ * turned into text up front.
+ *
+ * The output is the same as Checker + Evaluator + Generator give for the stylesheet with the
+ * overrides put in the source: a variable assigned in an if or else body keeps its new value
+ * for the rest of the rule, a result has the unit of the operand that isn't a scalar and of the
+ * declarations of a property only the last one is written.
+ */
+public class StylesheetProgram {
+    // Statements and their operands
+    // GLOBAL slot expression: assigns a global unless it is overridden
+    static final int GLOBAL = 0;
+    // ASSIGN slot expression
+    static final int ASSIGN = 1;
+    // COPY to from: copies the value of one slot to another
+    static final int COPY = 2;
+    // RULE rule: starts the output of a rule
+    static final int RULE = 3;
+    // DECLARE property expression: adds a declaration to the rule
+    static final int DECLARE = 4;
+    // JUMP_IF_FALSE expression target
+    static final int JUMP_IF_FALSE = 5;
+    // JUMP target
+    static final int JUMP = 6;
+    // END_RULE: writes the declarations of the rule that aren't overwritten and ends it
+    static final int END_RULE = 7;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Generator generator = new Generator();
+
+    private int[] code = new int[64];
+    private int size = 0;
+
+    private final List<ExpressionProgram> expressions = new ArrayList<>();
+    // The same, in an array once compiled
+    private final ExpressionProgram[] programs;
+    // "selectors {\n" per rule
+    private final List<String> ruleStarts = new ArrayList<>();
+    // "  property: " per property
+    private final List<String> declarationStarts = new ArrayList<>();
+    private final Map<String, Integer> properties = new HashMap<>();
+
+    // Slot per global
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final List<ExpressionType> slotTypes = new ArrayList<>();
+    private int maxStack = 1;
+    private int maxDeclarations = 0;
+
+    // Names visible while compiling, innermost scope first
+    private final Deque<Map<String, Integer>> scopes = new ArrayDeque<>();
+    private int ruleDeclarations;
+
+    private final ExpressionProgram.Slots slots = new ExpressionProgram.Slots() {
+        @Override
+        public int slotOf(String name) {
+            Integer slot = lookup(name);
+            if (slot == null) {
+                throw new IllegalArgumentException("Variable " + name + " isn't assigned before it is used");
+            }
+            return slot;
+        }
+
+        @Override
+        public ExpressionType typeOf(int slot) {
+            return slotTypes.get(slot);
+        }
+    };
+
+    /**
+     * @param ast a stylesheet without semantic errors, it isn't changed
+     */
+    public StylesheetProgram(AST ast) {
+        scopes.push(globals);
+        for (ASTNode child : ast.root.body) {
+            if (child instanceof VariableAssignment) {
+                compileGlobal((VariableAssignment) child);
+            } else if (child instanceof Stylerule) {
+                compileStylerule((Stylerule) child);
+            }
+        }
+        scopes.pop();
+        code = Arrays.copyOf(code, size);
+        programs = expressions.toArray(new ExpressionProgram[0]);
+    }
+
+    /**
+     * @return variables that keep the values the stylesheet assigns until they are set
+     */
+    public Variables newVariables() {
+        return new Variables(this);
+    }
+
+    public String render(Variables variables) {
+        return Generator.toString(out -> render(variables, out));
+    }
+
+    /**
+     * Writes the CSS of the stylesheet with the given variables.
+     */
+    public void render(Variables variables, Appendable out) throws IOException {
+        if (variables.program != this) {
+            throw new IllegalArgumentException("Variables of another stylesheet");
+        }
+
+        run(0, code.length, Arrays.copyOf(variables.values, slotTypes.size()), variables.overridden, out);
+    }
+
+    /**
+     * Writes the CSS of the rule in code[start] up to end with the given values of the globals.
+     * Used by the CompiledStylesheet for rules that are too large to compile.
+     */
+    void renderStylerule(int start, int end, int[] globals, Appendable out) throws IOException {
+        // There are no GLOBAL statements in a rule, so nothing is overridden
+        run(start, end, Arrays.copyOf(globals, slotTypes.size()), null, out);
+    }
+
+    private void run(int start, int end, int[] values, boolean[] overridden, Appendable out) throws IOException {
+        int[] stack = new int[maxStack];
+
+        // Declarations of the current rule and the last index of every property in it
+        int[] pendingProperties = new int[maxDeclarations];
+        int[] pendingExpressions = new int[maxDeclarations];
+        int[] pendingValues = new int[maxDeclarations];
+        int pendingSize = 0;
+        int[] lastIndex = new int[declarationStarts.size()];
+
+        try {
+            int pc = start;
+            while (pc < end) {
+                switch (code[pc]) {
+                    case GLOBAL:
+                        if (!overridden[code[pc + 1]]) {
+                            values[code[pc + 1]] = programs[code[pc + 2]].run(values, stack);
+                        }
+                        pc += 3;
+                        break;
+                    case ASSIGN:
+                        values[code[pc + 1]] = programs[code[pc + 2]].run(values, stack);
+                        pc += 3;
+                        break;
+                    case COPY:
+                        values[code[pc + 1]] = values[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case RULE:
+                        out.append(ruleStarts.get(code[pc + 1]));
+                        pc += 2;
+                        break;
+                    case DECLARE:
+                        pendingProperties[pendingSize] = code[pc + 1];
+                        pendingExpressions[pendingSize] = code[pc + 2];
+                        pendingValues[pendingSize] = programs[code[pc + 2]].run(values, stack);
+                        lastIndex[code[pc + 1]] = pendingSize;
+                        pendingSize++;
+                        pc += 3;
+                        break;
+                    case JUMP_IF_FALSE:
+                        pc = programs[code[pc + 1]].run(values, stack) == 0 ? code[pc + 2] : pc + 3;
+                        break;
+                    case JUMP:
+                        pc = code[pc + 1];
+                        break;
+                    case END_RULE:
+                        for (int i = 0; i < pendingSize; i++) {
+                            if (lastIndex[pendingProperties[i]] == i) {
+                                writeDeclaration(pendingProperties[i], pendingExpressions[i], pendingValues[i], out);
+                            }
+                        }
+                        pendingSize = 0;
+                        generator.generateRuleEnd(out);
+                        pc++;
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown statement " + code[pc] + " at " + pc);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the slot of a global variable, -1 when there is no such global
+     */
+    int globalSlot(String name) {
+        Integer slot = globals.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    int globalCount() {
+        return globals.size();
+    }
+
+    int slotCount() {
+        return slotTypes.size();
+    }
+
+    ExpressionType slotType(int slot) {
+        return slotTypes.get(slot);
+    }
+
+    // Used by the CompiledStylesheet to translate the program
+    int[] getCode() {
+        return code;
+    }
+
+    ExpressionProgram getExpression(int expression) {
+        return programs[expression];
+    }
+
+    String getRuleStart(int rule) {
+        return ruleStarts.get(rule);
+    }
+
+    String getDeclarationStart(int property) {
+        return declarationStarts.get(property);
+    }
+
+    // Writes the value like Generator does for the literal it stands for
+    void writeDeclaration(int property, int expression, int value, Appendable out) throws IOException {
+        out.append(declarationStarts.get(property));
+        writeValue(programs[expression].getUnit(), value, out);
+        out.append(";\n");
+    }
+
+    static void writeValue(ExpressionType unit, int value, Appendable out) throws IOException {
+        switch (unit) {
+            case PIXEL:
+                Generator.appendInt(out, value);
+                out.append("px");
+                break;
+            case PERCENTAGE:
+                Generator.appendInt(out, value);
+                out.append('%');
+                break;
+            case COLOR:
+                appendColor(out, value);
+                break;
+            default:
+                // The Generator writes no value for the other literals either
+                break;
+        }
+    }
+
+    static void appendColor(Appendable out, int rgb) throws IOException {
+        out.append('#');
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            out.append(HEX_DIGITS[(rgb >>> shift) & 0xf]);
+        }
+    }
+
+    private void compileGlobal(VariableAssignment assignment) {
+        String name = assignment.getName().name;
+        int expression = compileExpression(assignment.getExpression());
+        Integer slot = globals.get(name);
+        if (slot == null) {
+            slot = newSlot(expressions.get(expression).getUnit());
+            globals.put(name, slot);
+        }
+        emit(GLOBAL, slot, expression);
+    }
+
+    private void compileStylerule(Stylerule stylerule) {
+        StringBuilder start = new StringBuilder();
+        generator.generateRuleStart(stylerule, start);
+        emit(RULE, ruleStarts.size());
+        ruleStarts.add(start.toString());
+
+        // A global that the rule assigns to, anywhere, gets a slot of its own so the value
+        // assigned doesn't reach the next rules. It starts out as the global.
+        Map<String, Integer> ruleScope = new HashMap<>();
+        Set<String> assigned = new HashSet<>();
+        collectAssignments(stylerule.body, assigned);
+        for (String name : assigned) {
+            Integer global = globals.get(name);
+            if (global != null) {
+                int slot = newSlot(slotTypes.get(global));
+                ruleScope.put(name, slot);
+                emit(COPY, slot, global);
+            }
+        }
+
+        ruleDeclarations = 0;
+        scopes.push(ruleScope);
+        compileBody(stylerule.body);
+        scopes.pop();
+        maxDeclarations = Math.max(maxDeclarations, ruleDeclarations);
+
+        emit(END_RULE);
+    }
+
+    private static void collectAssignments(List<ASTNode> body, Set<String> names) {
+        for (ASTNode child : body) {
+            if (child instanceof VariableAssignment) {
+                names.add(((VariableAssignment) child).getName().name);
+            } else if (child instanceof IfClause) {
+                IfClause clause = (IfClause) child;
+                collectAssignments(clause.body, names);
+                if (clause.getElseClause() != null) {
+                    collectAssignments(clause.getElseClause().body, names);
+                }
+            }
+        }
+    }
+
+    private void compileBody(List<ASTNode> body) {
+        for (ASTNode child : body) {
+            if (child instanceof Declaration) {
+                compileDeclaration((Declaration) child);
+            } else if (child instanceof VariableAssignment) {
+                compileAssignment((VariableAssignment) child);
+            } else if (child instanceof IfClause) {
+                compileIfClause((IfClause) child);
+            }
+        }
+    }
+
+    private void compileDeclaration(Declaration declaration) {
+        String name = declaration.getProperty().name;
+        Integer property = properties.get(name);
+        if (property == null) {
+            property = declarationStarts.size();
+            properties.put(name, property);
+            declarationStarts.add("  " + name + ": ");
+        }
+        emit(DECLARE, property, compileExpression(declaration.getExpression()));
+        ruleDeclarations++;
+    }
+
+    // A variable that is visible gets the new value, even from an if body, like the Evaluator
+    // does it. Otherwise the variable is new in the innermost scope.
+    private void compileAssignment(VariableAssignment assignment) {
+        String name = assignment.getName().name;
+        int expression = compileExpression(assignment.getExpression());
+        Integer slot = lookup(name);
+        if (slot == null) {
+            slot = newSlot(expressions.get(expression).getUnit());
+            scopes.peek().put(name, slot);
+        }
+        emit(ASSIGN, slot, expression);
+    }
+
+    private void compileIfClause(IfClause clause) {
+        emit(JUMP_IF_FALSE, compileExpression(clause.getConditionalExpression()), 0);
+        int jumpToElse = size - 1;
+
+        scopes.push(new HashMap<>());
+        compileBody(clause.body);
+        scopes.pop();
+
+        if (clause.getElseClause() == null) {
+            code[jumpToElse] = size;
+            return;
+        }
+
+        emit(JUMP, 0);
+        int jumpToEnd = size - 1;
+        code[jumpToElse] = size;
+
+        scopes.push(new HashMap<>());
+        compileBody(clause.getElseClause().body);
+        scopes.pop();
+
+        code[jumpToEnd] = size;
+    }
+
+    private int compileExpression(Expression expression) {
+        ExpressionProgram program = ExpressionProgram.compile(expression, slots);
+        maxStack = Math.max(maxStack, program.getMaxStack());
+        expressions.add(program);
+        return expressions.size() - 1;
+    }
+
+    private Integer lookup(String name) {
+        for (Map<String, Integer> scope : scopes) {
+            Integer slot = scope.get(name);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private int newSlot(ExpressionType type) {
+        slotTypes.add(type);
+        return slotTypes.size() - 1;
+    }
+
+    private void emit(int... values) {
+        if (size + values.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + values.length));
+        }
+        System.arraycopy(values, 0, code, size, values.length);
+        size += values.length;
+    }
+}
@@ -0,0 +1,52 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.transforms.ExpressionProgram;
+
+import java.util.Arrays;
+
+/**
+ * Values for the global variables of a StylesheetProgram. A global that isn't set keeps the
+ * value the stylesheet assigns to it, globals assigned from a global that is set change along.
+ * Not thread safe, but a program can render with a Variables per thread at the same time.
+ */
+public class Variables {
+    final StylesheetProgram program;
+    // By slot, only the slots of globals are used
+    final int[] values;
+    final boolean[] overridden;
+
+    Variables(StylesheetProgram program) {
+        this.program = program;
+        values = new int[program.slotCount()];
+        overridden = new boolean[values.length];
+    }
+
+    /**
+     * Overrides the value of a global variable. A color is written in lower case.
+     * @return this, to set several variables in a row
+     * @throws IllegalArgumentException when there is no such global or the value has another type
+     */
+    public Variables set(String name, Literal value) {
+        int slot = program.globalSlot(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Not a global variable: " + name);
+        }
+        if (program.slotType(slot) != value.getType()) {
+            throw new IllegalArgumentException("Variable " + name + " expects a " + program.slotType(slot)
+                    + " but got a " + value.getType());
+        }
+
+        values[slot] = ExpressionProgram.valueOf(value);
+        overridden[slot] = true;
+        return this;
+    }
+
+    /**
+     * Removes all overrides.
+     */
+    public void reset() {
+        Arrays.fill(values, 0);
+        Arrays.fill(overridden, false);
+    }
+}
@@ -13,6 +13,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import nl.han.ica.icss.IncrementalPipeline;
 import nl.han.ica.icss.Pipeline;
 
 import java.io.File;
@@ -51,7 +52,7 @@ public class MainGui extends Application {
     @Override
     public void start(Stage stage) {
         //Setup pipeline
-        pipeline = new Pipeline();
+        pipeline = new IncrementalPipeline();
 
         //Setup UI
         stage.setTitle(title);
@@ -0,0 +1,291 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * Builds the AST straight from the tokens of the lexer, without an Antlr parse tree and listener.
+ *
+ * Hand-written recursive descent parser for the grammar in ICSS.g4, it builds the same tree as
+ * the ASTListener. Only the current token is kept, so tokens aren't buffered either. Unlike the
+ * Antlr parser it doesn't recover from syntax errors: the first one is reported to the error
+ * listener and parsing stops with a ParseCancellationException.
+ */
+public class ASTParser {
+    private final TokenSource tokens;
+    private final ANTLRErrorListener errorListener;
+
+    private Token current;
+
+    public ASTParser(TokenSource tokens, ANTLRErrorListener errorListener) {
+        this.tokens = tokens;
+        this.errorListener = errorListener;
+    }
+
+    // stylesheet: variableAssignment* styleRule* EOF;
+    public AST parse() {
+        advance();
+
+        Stylesheet stylesheet = new Stylesheet();
+        while (current.getType() == ICSSLexer.CAPITAL_IDENT) {
+            stylesheet.addChild(parseVariableAssignment());
+        }
+        while (isSelector(current.getType())) {
+            stylesheet.addChild(parseStyleRule());
+        }
+        if (current.getType() != Token.EOF) {
+            throw syntaxError(Token.EOF, ICSSLexer.ID_IDENT, ICSSLexer.CLASS_IDENT, ICSSLexer.LOWER_IDENT);
+        }
+
+        return new AST(stylesheet);
+    }
+
+    // styleRule: selector OPEN_BRACE body CLOSE_BRACE;
+    private Stylerule parseStyleRule() {
+        Stylerule stylerule = new Stylerule();
+        stylerule.addChild(parseSelector());
+        expect(ICSSLexer.OPEN_BRACE);
+        parseBody(stylerule);
+        expect(ICSSLexer.CLOSE_BRACE);
+        return stylerule;
+    }
+
+    private Selector parseSelector() {
+        String text = current.getText();
+        switch (current.getType()) {
+            case ICSSLexer.ID_IDENT:
+                advance();
+                return new IdSelector(text);
+            case ICSSLexer.CLASS_IDENT:
+                advance();
+                return new ClassSelector(text);
+            case ICSSLexer.LOWER_IDENT:
+                advance();
+                return new TagSelector(text);
+            default:
+                throw syntaxError(ICSSLexer.ID_IDENT, ICSSLexer.CLASS_IDENT, ICSSLexer.LOWER_IDENT);
+        }
+    }
+
+    // body: (declaration | ifClause | variableAssignment)*;
+    private void parseBody(ASTNode parent) {
+        while (true) {
+            switch (current.getType()) {
+                case ICSSLexer.LOWER_IDENT:
+                    parent.addChild(parseDeclaration());
+                    break;
+                case ICSSLexer.IF:
+                    parent.addChild(parseIfClause());
+                    break;
+                case ICSSLexer.CAPITAL_IDENT:
+                    parent.addChild(parseVariableAssignment());
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    // declaration: propertyName COLON expression SEMICOLON;
+    private Declaration parseDeclaration() {
+        Declaration declaration = new Declaration();
+        declaration.addChild(new PropertyName(expect(ICSSLexer.LOWER_IDENT).getText()));
+        expect(ICSSLexer.COLON);
+        declaration.addChild(parseExpression(1));
+        expect(ICSSLexer.SEMICOLON);
+        return declaration;
+    }
+
+    // ifClause: IF BOX_BRACKET_OPEN (boolLiteral | variableReference) BOX_BRACKET_CLOSE OPEN_BRACE body CLOSE_BRACE elseClause?;
+    // elseClause: ELSE OPEN_BRACE body CLOSE_BRACE;
+    private IfClause parseIfClause() {
+        IfClause ifClause = new IfClause();
+        expect(ICSSLexer.IF);
+        expect(ICSSLexer.BOX_BRACKET_OPEN);
+
+        switch (current.getType()) {
+            case ICSSLexer.TRUE:
+            case ICSSLexer.FALSE:
+            case ICSSLexer.CAPITAL_IDENT:
+                ifClause.addChild(parseLiteral());
+                break;
+            default:
+                throw syntaxError(ICSSLexer.TRUE, ICSSLexer.FALSE, ICSSLexer.CAPITAL_IDENT);
+        }
+
+        expect(ICSSLexer.BOX_BRACKET_CLOSE);
+        expect(ICSSLexer.OPEN_BRACE);
+        parseBody(ifClause);
+        expect(ICSSLexer.CLOSE_BRACE);
+
+        if (current.getType() == ICSSLexer.ELSE) {
+            advance();
+            ElseClause elseClause = new ElseClause();
+            expect(ICSSLexer.OPEN_BRACE);
+            parseBody(elseClause);
+            expect(ICSSLexer.CLOSE_BRACE);
+            ifClause.addChild(elseClause);
+        }
+
+        return ifClause;
+    }
+
+    // variableAssignment: variableReference ASSIGNMENT_OPERATOR expression+ SEMICOLON;
+    private VariableAssignment parseVariableAssignment() {
+        VariableAssignment assignment = new VariableAssignment();
+        assignment.addChild(new VariableReference(expect(ICSSLexer.CAPITAL_IDENT).getText()));
+        expect(ICSSLexer.ASSIGNMENT_OPERATOR);
+
+        // Like with the listener only the first expression is kept, the assignment ignores the others
+        assignment.addChild(parseExpression(1));
+        while (isLiteral(current.getType())) {
+            assignment.addChild(parseExpression(1));
+        }
+
+        expect(ICSSLexer.SEMICOLON);
+        return assignment;
+    }
+
+    // expression: literal | expression (MUL | DIV) expression | expression (PLUS | MIN) expression;
+    // Precedence climbing, operators with a higher precedence bind tighter and all are left associative
+    private Expression parseExpression(int minimumPrecedence) {
+        Expression left = parseLiteral();
+
+        int precedence = precedence(current.getType());
+        while (precedence >= minimumPrecedence) {
+            Operation operation = newOperation(current.getType());
+            advance();
+
+            operation.addChild(left);
+            operation.addChild(parseExpression(precedence + 1));
+            left = operation;
+
+            precedence = precedence(current.getType());
+        }
+
+        return left;
+    }
+
+    private static int precedence(int tokenType) {
+        switch (tokenType) {
+            case ICSSLexer.MUL:
+                return 2;
+            case ICSSLexer.PLUS:
+            case ICSSLexer.MIN:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private static Operation newOperation(int tokenType) {
+        switch (tokenType) {
+            case ICSSLexer.MUL:
+                return new MultiplyOperation();
+            case ICSSLexer.PLUS:
+                return new AddOperation();
+            default:
+                return new SubtractOperation();
+        }
+    }
+
+    // literal: boolLiteral | colorLiteral | percentageLiteral | pixelLiteral | scalarLiteral | variableReference;
+    private Expression parseLiteral() {
+        String text = current.getText();
+        Expression literal;
+        switch (current.getType()) {
+            case ICSSLexer.TRUE:
+            case ICSSLexer.FALSE:
+                literal = new BoolLiteral(text);
+                break;
+            case ICSSLexer.COLOR:
+                literal = new ColorLiteral(text);
+                break;
+            case ICSSLexer.PERCENTAGE:
+                literal = new PercentageLiteral(text);
+                break;
+            case ICSSLexer.PIXELSIZE:
+                literal = new PixelLiteral(text);
+                break;
+            case ICSSLexer.SCALAR:
+                literal = new ScalarLiteral(text);
+                break;
+            case ICSSLexer.CAPITAL_IDENT:
+                literal = new VariableReference(text);
+                break;
+            default:
+                throw syntaxError(ICSSLexer.TRUE, ICSSLexer.FALSE, ICSSLexer.PIXELSIZE, ICSSLexer.PERCENTAGE,
+                        ICSSLexer.SCALAR, ICSSLexer.COLOR, ICSSLexer.CAPITAL_IDENT);
+        }
+
+        advance();
+        return literal;
+    }
+
+    private static boolean isSelector(int tokenType) {
+        return tokenType == ICSSLexer.ID_IDENT || tokenType == ICSSLexer.CLASS_IDENT || tokenType == ICSSLexer.LOWER_IDENT;
+    }
+
+    private static boolean isLiteral(int tokenType) {
+        switch (tokenType) {
+            case ICSSLexer.TRUE:
+            case ICSSLexer.FALSE:
+            case ICSSLexer.COLOR:
+            case ICSSLexer.PERCENTAGE:
+            case ICSSLexer.PIXELSIZE:
+            case ICSSLexer.SCALAR:
+            case ICSSLexer.CAPITAL_IDENT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void advance() {
+        do {
+            current = tokens.nextToken();
+        } while (current.getChannel() != Token.DEFAULT_CHANNEL && current.getType() != Token.EOF);
+    }
+
+    private Token expect(int tokenType) {
+        Token token = current;
+        if (token.getType() != tokenType) {
+            throw syntaxError(tokenType);
+        }
+        advance();
+        return token;
+    }
+
+    // Reports the error the way Antlr words it and stops parsing
+    private ParseCancellationException syntaxError(int... expected) {
+        StringBuilder message = new StringBuilder("mismatched input '")
+                .append(current.getType() == Token.EOF ? "<EOF>" : current.getText())
+                .append("' expecting ");
+
+        if (expected.length > 1) {
+            message.append('{');
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (i > 0) {
+                message.append(", ");
+            }
+            message.append(ICSSLexer.VOCABULARY.getDisplayName(expected[i]));
+        }
+        if (expected.length > 1) {
+            message.append('}');
+        }
+
+        errorListener.syntaxError(null, current, current.getLine(), current.getCharPositionInLine(), message.toString(), null);
+        return new ParseCancellationException(message.toString());
+    }
+}
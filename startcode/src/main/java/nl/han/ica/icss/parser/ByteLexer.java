@@ -0,0 +1,357 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hand-written lexer for the tokens in ICSS.g4 that scans the UTF-8 bytes directly, instead of
+ * running Antlr's lexer ATN over code points. It emits the same tokens as the ICSSLexer, with the
+ * same text, positions and indexes, so the ICSSParser and the ASTParser can read from it.
+ *
+ * Every token of the grammar is ASCII. The first byte of a token picks what to scan from the
+ * START table, the rest of it is a run of bytes in one of the classes of the CLASSES table.
+ * Token text is only copied out of the bytes when a parser asks for it. A PackedTokenStream
+ * takes the tokens from scan, without a Token object for each.
+ *
+ * Bytes that don't start a token are reported like Antlr does ("token recognition error at"),
+ * together with the character after them when that one can't continue the token.
+ */
+public class ByteLexer implements TokenSource {
+
+    // Classes of a byte, a bit each
+    private static final int DIGIT = 1;
+    private static final int HEX = 2; // a-f, digits have their own bit
+    private static final int LOWER = 4;
+    private static final int UPPER = 8;
+    private static final int HYPHEN = 16;
+    private static final int UNDERSCORE = 32;
+    private static final int WHITESPACE = 64;
+
+    // [a-z0-9\-] and [A-Za-z0-9_]
+    private static final int LOWER_IDENT_PART = LOWER | DIGIT | HYPHEN;
+    private static final int CAPITAL_IDENT_PART = UPPER | LOWER | DIGIT | UNDERSCORE;
+
+    private static final int[] CLASSES = new int[256];
+
+    // What a byte starts: a single character token type, or one of these below zero
+    private static final int NONE = 0;
+    private static final int NUMBER = -1;
+    private static final int LOWER_WORD = -2;
+    private static final int CAPITAL_WORD = -3;
+    private static final int HASH = -4;
+    private static final int DOT = -5;
+    private static final int COLON = -6;
+    private static final int SPACE = -7;
+
+    private static final int[] START = new int[256];
+
+    static {
+        for (int c = '0'; c <= '9'; c++) {
+            CLASSES[c] = DIGIT;
+            START[c] = NUMBER;
+        }
+        for (int c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = c <= 'f' ? LOWER | HEX : LOWER;
+            START[c] = LOWER_WORD;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] = UPPER;
+            START[c] = CAPITAL_WORD;
+        }
+        CLASSES['-'] = HYPHEN;
+        CLASSES['_'] = UNDERSCORE;
+        for (char c : new char[]{' ', '\t', '\r', '\n'}) {
+            CLASSES[c] = WHITESPACE;
+            START[c] = SPACE;
+        }
+
+        START['#'] = HASH;
+        START['.'] = DOT;
+        START[':'] = COLON;
+        START['['] = ICSSLexer.BOX_BRACKET_OPEN;
+        START[']'] = ICSSLexer.BOX_BRACKET_CLOSE;
+        START['{'] = ICSSLexer.OPEN_BRACE;
+        START['}'] = ICSSLexer.CLOSE_BRACE;
+        START[';'] = ICSSLexer.SEMICOLON;
+        START['+'] = ICSSLexer.PLUS;
+        START['-'] = ICSSLexer.MIN;
+        START['*'] = ICSSLexer.MUL;
+    }
+
+    private final MappedCharStream input;
+    private final ByteBuffer bytes;
+    private final int limit;
+    private final ANTLRErrorListener errorListener;
+    private final Pair<TokenSource, CharStream> source;
+    private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+
+    // Byte offset and code point index of the next character
+    private int position;
+    private int index;
+    private int line = 1;
+    private int charPositionInLine;
+
+    // First and last code point index, line and column of the token scan found last
+    int tokenStart;
+    int tokenStop;
+    int tokenLine;
+    int tokenColumn;
+
+    public ByteLexer(byte[] input, ANTLRErrorListener errorListener) {
+        this(new MappedCharStream(ByteBuffer.wrap(input), IntStream.UNKNOWN_SOURCE_NAME), errorListener);
+    }
+
+    /**
+     * Lexes the bytes of the stream from its start, the stream is only used for the text of the tokens.
+     */
+    public ByteLexer(MappedCharStream input, ANTLRErrorListener errorListener) {
+        this.input = input;
+        this.bytes = input.getBytes();
+        this.limit = bytes.limit();
+        this.errorListener = errorListener;
+        this.source = new Pair<>(this, input);
+    }
+
+    /**
+     * Sets the line number of the next token, like Lexer.setLine.
+     */
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    @Override
+    public Token nextToken() {
+        int type = scan();
+        return factory.create(source, type, null, Token.DEFAULT_CHANNEL, tokenStart, tokenStop, tokenLine, tokenColumn);
+    }
+
+    /**
+     * Finds the next token without making a Token for it, its position is left in the token fields.
+     * @return the type of the token, Token.EOF at the end
+     */
+    int scan() {
+        while (position < limit) {
+            int startPosition = position;
+            int startIndex = index;
+            int startLine = line;
+            int startColumn = charPositionInLine;
+
+            int c = bytes.get(position) & 0xFF;
+            int type = START[c];
+            int end;
+            switch (type) {
+                case NONE:
+                    reportError(startIndex, startLine, startColumn, 0);
+                    continue;
+                case SPACE:
+                    skipWhitespace();
+                    continue;
+                case NUMBER:
+                    end = run(position + 1, DIGIT);
+                    if (end < limit && bytes.get(end) == '%') {
+                        type = ICSSLexer.PERCENTAGE;
+                        end++;
+                    } else if (end + 1 < limit && bytes.get(end) == 'p' && bytes.get(end + 1) == 'x') {
+                        type = ICSSLexer.PIXELSIZE;
+                        end += 2;
+                    } else {
+                        type = ICSSLexer.SCALAR;
+                    }
+                    break;
+                case LOWER_WORD:
+                    end = run(position + 1, LOWER_IDENT_PART);
+                    type = keyword(startPosition, end, "if", ICSSLexer.IF, "else", ICSSLexer.ELSE, ICSSLexer.LOWER_IDENT);
+                    break;
+                case CAPITAL_WORD:
+                    end = run(position + 1, CAPITAL_IDENT_PART);
+                    type = keyword(startPosition, end, "TRUE", ICSSLexer.TRUE, "FALSE", ICSSLexer.FALSE, ICSSLexer.CAPITAL_IDENT);
+                    break;
+                case HASH:
+                    end = run(position + 1, LOWER_IDENT_PART);
+                    if (end == position + 1) {
+                        reportError(startIndex, startLine, startColumn, 1);
+                        continue;
+                    }
+                    // A color when it is exactly six hex digits, an id otherwise
+                    type = end == position + 7 && run(position + 1, DIGIT | HEX) == end
+                            ? ICSSLexer.COLOR : ICSSLexer.ID_IDENT;
+                    break;
+                case DOT:
+                    end = run(position + 1, LOWER_IDENT_PART);
+                    if (end == position + 1) {
+                        reportError(startIndex, startLine, startColumn, 1);
+                        continue;
+                    }
+                    type = ICSSLexer.CLASS_IDENT;
+                    break;
+                case COLON:
+                    if (position + 1 < limit && bytes.get(position + 1) == '=') {
+                        type = ICSSLexer.ASSIGNMENT_OPERATOR;
+                        end = position + 2;
+                    } else {
+                        type = ICSSLexer.COLON;
+                        end = position + 1;
+                    }
+                    break;
+                default:
+                    end = position + 1;
+                    break;
+            }
+
+            // Tokens are ASCII and never hold a line break
+            int length = end - startPosition;
+            position = end;
+            index += length;
+            charPositionInLine += length;
+            setToken(startIndex, startLine, startColumn);
+            return type;
+        }
+
+        setToken(index, line, charPositionInLine);
+        return Token.EOF;
+    }
+
+    private void setToken(int start, int line, int column) {
+        tokenStart = start;
+        tokenStop = index - 1;
+        tokenLine = line;
+        tokenColumn = column;
+    }
+
+    // End of the run of bytes of the classes, starting at from
+    private int run(int from, int classes) {
+        int end = from;
+        while (end < limit && (CLASSES[bytes.get(end) & 0xFF] & classes) != 0) {
+            end++;
+        }
+        return end;
+    }
+
+    private int keyword(int from, int to, String first, int firstType, String second, int secondType, int otherwise) {
+        if (matches(from, to, first)) {
+            return firstType;
+        }
+        if (matches(from, to, second)) {
+            return secondType;
+        }
+        return otherwise;
+    }
+
+    private boolean matches(int from, int to, String keyword) {
+        if (to - from != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (bytes.get(from + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (position < limit) {
+            byte b = bytes.get(position);
+            if ((CLASSES[b & 0xFF] & WHITESPACE) == 0) {
+                return;
+            }
+            position++;
+            index++;
+            if (b == '\n') {
+                line++;
+                charPositionInLine = 0;
+            } else {
+                charPositionInLine++;
+            }
+        }
+    }
+
+    /**
+     * Skips the bytes that were matched and the character after them that didn't match, when there
+     * is one, and reports them the way the ICSSLexer does. Only that character can be outside ASCII.
+     */
+    private void reportError(int startIndex, int startLine, int startColumn, int matched) {
+        position += matched;
+        index += matched;
+        charPositionInLine += matched;
+
+        if (position < limit) {
+            byte b = bytes.get(position);
+            do {
+                position++;
+            } while (position < limit && (bytes.get(position) & 0xC0) == 0x80);
+            index++;
+            if (b == '\n') {
+                line++;
+                charPositionInLine = 0;
+            } else {
+                charPositionInLine++;
+            }
+        }
+
+        String text = input.getText(Interval.of(startIndex, index - 1));
+        errorListener.syntaxError(null, null, startLine, startColumn,
+                "token recognition error at: '" + errorDisplay(text) + "'", null);
+    }
+
+    // Like Lexer.getErrorDisplay
+    private static String errorDisplay(String text) {
+        StringBuilder display = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\n':
+                    display.append("\\n");
+                    break;
+                case '\t':
+                    display.append("\\t");
+                    break;
+                case '\r':
+                    display.append("\\r");
+                    break;
+                default:
+                    display.append(c);
+            }
+        }
+        return display.toString();
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return charPositionInLine;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return input;
+    }
+
+    @Override
+    public String getSourceName() {
+        return input.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return factory;
+    }
+}
@@ -0,0 +1,268 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A CharStream over a memory-mapped UTF-8 file. Code points are decoded from the mapped bytes
+ * when the lexer asks for them, so the file is never copied onto the heap as a whole; only the
+ * text of the tokens is.
+ *
+ * Indexes are code points, like Antlr's own streams. When the file is plain ASCII they are the
+ * byte offsets. Otherwise the stream steps from the byte offset of the current index, which is
+ * cheap because the lexer only seeks back to the start of the current token, or from the nearest
+ * of the offsets it keeps for every 1024th code point, for the text of tokens lexed long before.
+ * A byte sequence that isn't valid UTF-8 is read as one U+FFFD per lead byte.
+ */
+public class MappedCharStream implements CharStream {
+    private static final int REPLACEMENT = 0xFFFD;
+    private static final int CHECKPOINT_SHIFT = 10;
+
+    private final ByteBuffer bytes;
+    private final String sourceName;
+    private final int size;
+    private final boolean ascii;
+    // Byte offset of every 1024th code point, made when first needed and only when not ascii
+    private int[] checkpoints;
+
+    // Current code point and the offset of its first byte
+    private int index;
+    private int position;
+
+    MappedCharStream(ByteBuffer bytes, String sourceName) {
+        this.bytes = bytes;
+        this.sourceName = sourceName;
+
+        int limit = bytes.limit();
+        int codePoints = 0;
+        boolean highBytes = false;
+        for (int i = 0; i < limit; i++) {
+            byte b = bytes.get(i);
+            highBytes |= b < 0;
+            if (!isContinuation(b)) {
+                codePoints++;
+            }
+        }
+        // Stray continuation bytes at the start still make up a (broken) code point
+        if (limit > 0 && isContinuation(bytes.get(0))) {
+            codePoints++;
+        }
+        this.size = codePoints;
+        this.ascii = !highBytes;
+    }
+
+    /**
+     * Maps the file read-only. The mapping stays valid after the file is closed and is
+     * released when the stream is garbage collected.
+     * @throws IOException when the file can't be read or is larger than 2 GB
+     */
+    public static MappedCharStream open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to map (" + length + " bytes)");
+            }
+            return new MappedCharStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), file.toString());
+        }
+    }
+
+    ByteBuffer getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public void consume() {
+        if (index >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        index++;
+        position = ascii ? index : next(position);
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0; // undefined
+        }
+        int target = i > 0 ? index + i - 1 : index + i;
+        if (target < 0 || target >= size) {
+            return IntStream.EOF;
+        }
+        if (ascii) {
+            return bytes.get(target);
+        }
+        return decode(offsetOf(target));
+    }
+
+    @Override
+    public int mark() {
+        // The whole file stays mapped, so there is nothing to keep
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        int target = Math.min(Math.max(index, 0), size);
+        position = offsetOf(target);
+        this.index = target;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        if (stop < start) {
+            return "";
+        }
+
+        int from = offsetOf(start);
+        int to = stop + 1 == size ? bytes.limit() : offsetOf(stop + 1);
+        if (ascii) {
+            byte[] text = new byte[to - from];
+            bytes.get(from, text);
+            return new String(text, StandardCharsets.ISO_8859_1);
+        }
+
+        StringBuilder text = new StringBuilder(to - from);
+        for (int offset = from; offset < to; offset = next(offset)) {
+            text.appendCodePoint(decode(offset));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+
+    /**
+     * @return the byte offset of the code point, stepping from the current one
+     */
+    private int offsetOf(int target) {
+        if (ascii) {
+            return target;
+        }
+        if (target == size) {
+            return bytes.limit();
+        }
+
+        int from = index;
+        int offset = position;
+        int checkpoint = target >> CHECKPOINT_SHIFT;
+        if (Math.abs(target - index) > target - (checkpoint << CHECKPOINT_SHIFT)) {
+            if (checkpoints == null) {
+                checkpoints = checkpoints();
+            }
+            from = checkpoint << CHECKPOINT_SHIFT;
+            offset = checkpoints[checkpoint];
+        }
+
+        for (int i = from; i < target; i++) {
+            offset = next(offset);
+        }
+        for (int i = from; i > target; i--) {
+            offset = previous(offset);
+        }
+        return offset;
+    }
+
+    private int[] checkpoints() {
+        int[] offsets = new int[(size >> CHECKPOINT_SHIFT) + 1];
+        int mask = (1 << CHECKPOINT_SHIFT) - 1;
+        int codePoint = 0;
+        for (int offset = 0; offset < bytes.limit(); offset = next(offset)) {
+            if ((codePoint & mask) == 0) {
+                offsets[codePoint >> CHECKPOINT_SHIFT] = offset;
+            }
+            codePoint++;
+        }
+        return offsets;
+    }
+
+    private int next(int offset) {
+        int limit = bytes.limit();
+        offset++;
+        while (offset < limit && isContinuation(bytes.get(offset))) {
+            offset++;
+        }
+        return offset;
+    }
+
+    private int previous(int offset) {
+        offset--;
+        while (offset > 0 && isContinuation(bytes.get(offset))) {
+            offset--;
+        }
+        return offset;
+    }
+
+    private int decode(int offset) {
+        int lead = bytes.get(offset) & 0xFF;
+        if (lead < 0x80) {
+            return lead;
+        }
+
+        int length;
+        int codePoint;
+        int min;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 2;
+            codePoint = lead & 0x1F;
+            min = 0x80;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 3;
+            codePoint = lead & 0x0F;
+            min = 0x800;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            codePoint = lead & 0x07;
+            min = 0x10000;
+        } else {
+            return REPLACEMENT;
+        }
+
+        // The sequence must be exactly the lead byte and its continuation bytes
+        if (next(offset) != offset + length) {
+            return REPLACEMENT;
+        }
+        for (int i = 1; i < length; i++) {
+            codePoint = codePoint << 6 | bytes.get(offset + i) & 0x3F;
+        }
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
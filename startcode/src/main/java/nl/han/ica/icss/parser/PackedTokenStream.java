@@ -0,0 +1,302 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.Arrays;
+
+/**
+ * A TokenStream for the ICSSParser that keeps the tokens packed in parallel int arrays: type,
+ * start index, length, line and column, so five ints a token instead of a CommonToken each.
+ * From a ByteLexer the tokens go straight into the arrays, other sources still make a Token
+ * that is dropped right away.
+ *
+ * A Token is only made when the parser asks for one, as a view on the arrays. The parse tree
+ * keeps the ones it holds, but the stream itself doesn't. Token text is read from the input
+ * stream of the source, so lexers that set their own token text aren't supported.
+ *
+ * Like the CommonTokenStream, tokens are fetched when the parser first looks at them, so lexer
+ * and parser errors are reported in the same order. Only tokens on the default channel are kept.
+ */
+public class PackedTokenStream implements TokenStream {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TokenSource source;
+    private final ByteLexer byteLexer;
+    private final CharStream input;
+
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] columns = new int[INITIAL_CAPACITY];
+    private int size;
+    private boolean fetchedEof;
+
+    // Index of the current token, -1 until the first token is fetched
+    private int p = -1;
+
+    // The parser asks for the tokens around the current one over and over, the last few are kept
+    private final PackedToken[] recent = new PackedToken[4];
+
+    public PackedTokenStream(TokenSource source) {
+        this.source = source;
+        this.byteLexer = source instanceof ByteLexer ? (ByteLexer) source : null;
+        this.input = source.getInputStream();
+    }
+
+    @Override
+    public void consume() {
+        if (LA(1) == Token.EOF) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        sync(p + 1);
+        p++;
+    }
+
+    @Override
+    public int LA(int i) {
+        int index = indexOf(i);
+        return index < 0 ? Token.INVALID_TYPE : types[index];
+    }
+
+    @Override
+    public Token LT(int k) {
+        int index = indexOf(k);
+        return index < 0 ? null : token(index);
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("token index " + index + " out of range 0.." + (size - 1));
+        }
+        return token(index);
+    }
+
+    @Override
+    public int mark() {
+        // Every token is kept, so there is nothing to hold on to
+        return 0;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        lazyInit();
+        sync(index);
+        p = Math.min(index, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return source.getSourceName();
+    }
+
+    @Override
+    public TokenSource getTokenSource() {
+        return source;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = interval.b;
+        if (start < 0 || stop < 0) {
+            return "";
+        }
+        lazyInit();
+        sync(stop);
+        stop = Math.min(stop, size - 1);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = start; i <= stop && types[i] != Token.EOF; i++) {
+            text.append(textOf(i));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String getText() {
+        lazyInit();
+        while (!fetchedEof) {
+            fetch();
+        }
+        return getText(Interval.of(0, size - 1));
+    }
+
+    @Override
+    public String getText(RuleContext ctx) {
+        return getText(ctx.getSourceInterval());
+    }
+
+    @Override
+    public String getText(Token start, Token stop) {
+        if (start == null || stop == null) {
+            return "";
+        }
+        return getText(Interval.of(start.getTokenIndex(), stop.getTokenIndex()));
+    }
+
+    // Index of the k-th token from the current one, -1 when there is none
+    private int indexOf(int k) {
+        lazyInit();
+        if (k == 0 || p + k < 0) {
+            return -1;
+        }
+        if (k < 0) {
+            return p + k;
+        }
+        int index = p + k - 1;
+        sync(index);
+        // Past the end is the EOF token
+        return Math.min(index, size - 1);
+    }
+
+    private void lazyInit() {
+        if (p == -1) {
+            sync(0);
+            p = 0;
+        }
+    }
+
+    // Fetches tokens until there is one at the index or the EOF token was fetched
+    private void sync(int index) {
+        while (size <= index && !fetchedEof) {
+            fetch();
+        }
+    }
+
+    private void fetch() {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+
+        int type;
+        if (byteLexer != null) {
+            type = byteLexer.scan();
+            starts[size] = byteLexer.tokenStart;
+            lengths[size] = byteLexer.tokenStop - byteLexer.tokenStart + 1;
+            lines[size] = byteLexer.tokenLine;
+            columns[size] = byteLexer.tokenColumn;
+        } else {
+            Token token;
+            do {
+                token = source.nextToken();
+            } while (token.getChannel() != Token.DEFAULT_CHANNEL && token.getType() != Token.EOF);
+            type = token.getType();
+            starts[size] = token.getStartIndex();
+            lengths[size] = token.getStopIndex() - token.getStartIndex() + 1;
+            lines[size] = token.getLine();
+            columns[size] = token.getCharPositionInLine();
+        }
+
+        types[size] = type;
+        size++;
+        fetchedEof = type == Token.EOF;
+    }
+
+    private Token token(int index) {
+        int slot = index & (recent.length - 1);
+        PackedToken token = recent[slot];
+        if (token == null || token.index != index) {
+            token = new PackedToken(index);
+            recent[slot] = token;
+        }
+        return token;
+    }
+
+    private String textOf(int index) {
+        if (types[index] == Token.EOF) {
+            return "<EOF>";
+        }
+        return input.getText(Interval.of(starts[index], starts[index] + lengths[index] - 1));
+    }
+
+    private class PackedToken implements Token {
+        final int index;
+
+        PackedToken(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getText() {
+            return textOf(index);
+        }
+
+        @Override
+        public int getType() {
+            return types[index];
+        }
+
+        @Override
+        public int getLine() {
+            return lines[index];
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return columns[index];
+        }
+
+        @Override
+        public int getChannel() {
+            return Token.DEFAULT_CHANNEL;
+        }
+
+        @Override
+        public int getTokenIndex() {
+            return index;
+        }
+
+        @Override
+        public int getStartIndex() {
+            return starts[index];
+        }
+
+        @Override
+        public int getStopIndex() {
+            return starts[index] + lengths[index] - 1;
+        }
+
+        @Override
+        public TokenSource getTokenSource() {
+            return source;
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return input;
+        }
+
+        // Like CommonToken
+        @Override
+        public String toString() {
+            return "[@" + index + "," + getStartIndex() + ":" + getStopIndex() + "='" + getText() + "',<"
+                    + getType() + ">," + getLine() + ":" + getCharPositionInLine() + "]";
+        }
+    }
+}
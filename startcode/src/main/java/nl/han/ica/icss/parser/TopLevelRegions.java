@@ -0,0 +1,96 @@
+package nl.han.ica.icss.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits ICSS source text into its top-level parts: variable assignments, which end at a
+ * semicolon outside of braces, and style rules, which end at the brace that closes their body.
+ * The split only looks at braces and semicolons, so it is much cheaper than lexing and every
+ * part can be parsed on its own.
+ */
+public class TopLevelRegions {
+
+    /**
+     * A top-level part of the source, from its first character that isn't whitespace up to
+     * and including its closing semicolon or brace.
+     */
+    public static class Region {
+        public final int start;
+        public final int end;
+        // Line of the first character, starting at 1 like the lexer
+        public final int line;
+
+        Region(int start, int end, int line) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+
+        public String text(String source) {
+            return source.substring(start, end);
+        }
+    }
+
+    private TopLevelRegions() {
+    }
+
+    /**
+     * @return the regions in source order, or null when the braces don't match or there is text
+     * after the last region. The source doesn't parse then, so it is best parsed as a whole.
+     */
+    public static List<Region> scan(String source) {
+        List<Region> regions = new ArrayList<>();
+
+        int depth = 0;
+        int line = 1;
+        int start = -1;
+        int startLine = 1;
+
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+
+            if (start < 0 && !isWhitespace(c)) {
+                start = i;
+                startLine = line;
+            }
+
+            switch (c) {
+                case '\n':
+                    line++;
+                    break;
+                case '{':
+                    depth++;
+                    break;
+                case '}':
+                    if (depth == 0) {
+                        return null;
+                    }
+                    depth--;
+                    if (depth == 0) {
+                        regions.add(new Region(start, i + 1, startLine));
+                        start = -1;
+                    }
+                    break;
+                case ';':
+                    if (depth == 0) {
+                        regions.add(new Region(start, i + 1, startLine));
+                        start = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (depth != 0 || start >= 0) {
+            return null;
+        }
+        return regions;
+    }
+
+    // Same whitespace as the WS token of the lexer
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+}
@@ -3,150 +3,324 @@ package nl.han.ica.icss.transforms;
 import nl.han.ica.datastructures.SymbolTable;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.BoolLiteral;
-import nl.han.ica.icss.ast.literals.PercentageLiteral;
-import nl.han.ica.icss.ast.literals.PixelLiteral;
-import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.literals.NumericLiteral;
 import nl.han.ica.icss.ast.operations.AddOperation;
 import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the variables, expressions and if clauses of a checked AST. The input isn't changed,
+ * the result is a new tree that shares every node that didn't change with the input (selectors,
+ * property names, literals, declarations that already held a literal and rules that had nothing
+ * to evaluate). So one parsed AST can be evaluated any number of times, also on several threads
+ * at once with an Evaluator per thread, as long as nobody changes the trees afterwards.
+ */
 public class Evaluator implements Transform {
-    private SymbolTable<String, Literal> variableValues;
+    private SymbolTable<Symbol, Literal> variableValues;
+
+    // Index of the last declaration per property id in the rule that is evaluated, only valid
+    // where lastIndexStamp holds the current stamp
+    private int[] lastIndex = new int[16];
+    private int[] lastIndexStamp = new int[16];
+    private int stamp = 0;
 
+    /**
+     * Replaces the root of the AST with its evaluated version, see evaluate.
+     */
     @Override
     public void apply(AST ast) {
+        ast.setRoot(evaluate(ast).root);
+    }
+
+    /**
+     * @return the evaluated tree, the given one stays as it is
+     */
+    public AST evaluate(AST ast) {
         variableValues = new SymbolTable<>();
 
         variableValues.pushScope();
-        recursiveChildTransform(ast.root);
+        List<ASTNode> body = evaluateBody(ast.root.body);
         variableValues.popScope();
+
+        return new AST(body == ast.root.body ? ast.root : new Stylesheet(body));
     }
 
-    public void recursiveChildTransform(ASTNode parentNode) {
-        for (ASTNode child : parentNode.getChildren()) {
-            if (child instanceof Stylerule) {
-                variableValues.pushScope();
-                transformStylerule((Stylerule) child);
-                variableValues.popScope();
-            } else if (child instanceof VariableAssignment) {
-                transformVariableAssignment((VariableAssignment) child);
-            } else if (child instanceof Declaration) {
-                transformDeclaration((Declaration) child);
-            } else if (child instanceof IfClause) {
-                transformIfClause((IfClause) child, parentNode);
+    /**
+     * Evaluates the variable assignments at the top of a stylesheet, in order.
+     * @param evaluated receives the evaluated assignments
+     * @return the values of the global variables afterwards, to evaluate style rules with one by one
+     */
+    public Map<String, Literal> evaluateVariableAssignments(List<VariableAssignment> assignments,
+                                                            List<VariableAssignment> evaluated) {
+        return evaluateVariableAssignments(assignments, Collections.emptyMap(), evaluated);
+    }
+
+    /**
+     * Same as evaluateVariableAssignments, but an override takes the place of the value assigned
+     * to that variable. Overrides aren't type checked.
+     */
+    public Map<String, Literal> evaluateVariableAssignments(List<VariableAssignment> assignments,
+                                                            Map<String, Literal> overrides,
+                                                            List<VariableAssignment> evaluated) {
+        variableValues = new SymbolTable<>();
+        variableValues.pushScope();
+
+        Map<String, Literal> globals = new HashMap<>();
+        for (VariableAssignment assignment : assignments) {
+            Literal override = overrides.get(assignment.getName().name);
+            if (override != null) {
+                variableValues.putVariable(assignment.getName().getSymbol(), override);
+                VariableAssignment result = new VariableAssignment();
+                result.setName(assignment.getName());
+                result.setExpression(override);
+                evaluated.add(result);
+            } else {
+                evaluated.add(evaluateVariableAssignment(assignment));
             }
+            globals.put(assignment.getName().name, variableValues.getVariable(assignment.getName().getSymbol()));
         }
+
+        variableValues.popScope();
+        return globals;
     }
 
-    // Remove duplicate declarations
-    public void transformStylerule(Stylerule stylerule) {
-        recursiveChildTransform(stylerule);
+    /**
+     * Evaluates a single style rule the same way evaluate does, with the given global variables in scope.
+     */
+    public Stylerule evaluateStylerule(Stylerule stylerule, Map<String, Literal> globals) {
+        variableValues = new SymbolTable<>();
+        variableValues.pushScope();
+        for (Map.Entry<String, Literal> global : globals.entrySet()) {
+            variableValues.putVariable(Symbol.of(global.getKey()), global.getValue());
+        }
 
-        Stylerule transformedStylerule = new Stylerule();
-        HashMap<String, Declaration> seenDeclarations = new HashMap<>();
-        for (ASTNode child : stylerule.body) {
-            if (child instanceof Declaration) {
-                Declaration original = (Declaration) child;
-                Declaration seenDeclaration = seenDeclarations.get(original.property.name);
+        Stylerule result = (Stylerule) stylerule.accept(nodeEvaluator, null);
+        variableValues.popScope();
+        return result;
+    }
 
-                if (seenDeclaration != null) {
-                    seenDeclarations.remove(seenDeclaration.property.name);
-                    transformedStylerule.removeChild(seenDeclaration);
-                }
+    // Evaluates a node in a body, the result is the node itself when nothing changed
+    private final ASTVisitor<ASTNode, Void> nodeEvaluator = new ASTVisitor<>() {
+        @Override
+        public ASTNode visitStylerule(Stylerule node, Void context) {
+            variableValues.pushScope();
+            Stylerule result = evaluateStylerule(node);
+            variableValues.popScope();
+            return result;
+        }
+
+        @Override
+        public ASTNode visitVariableAssignment(VariableAssignment node, Void context) {
+            return evaluateVariableAssignment(node);
+        }
+
+        @Override
+        public ASTNode visitDeclaration(Declaration node, Void context) {
+            return evaluateDeclaration(node);
+        }
+
+        @Override
+        public ASTNode visitNode(ASTNode node, Void context) {
+            return node;
+        }
+    };
 
-                seenDeclarations.put(original.property.name, original);
-                transformedStylerule.addChild(original);
+    // Folds an expression into a single literal
+    private final ASTVisitor<Literal, Void> expressionEvaluator = new ASTVisitor<>() {
+        @Override
+        public Literal visitLiteral(Literal node, Void context) {
+            return node;
+        }
+
+        @Override
+        public Literal visitVariableReference(VariableReference node, Void context) {
+            return variableValues.getVariable(node.getSymbol());
+        }
+
+        @Override
+        public Literal visitOperation(Operation node, Void context) {
+            return evaluateOperation(node);
+        }
+
+        @Override
+        public Literal visitNode(ASTNode node, Void context) {
+            throw new RuntimeException("Evaluation type not found");
+        }
+    };
+
+    /**
+     * Evaluates the nodes of a body in order. An if clause is replaced, in its place, by the
+     * evaluated nodes of the branch that is taken. The body is built once, in one pass.
+     * @return the new body, or the same list when none of its nodes changed
+     */
+    public List<ASTNode> evaluateBody(List<ASTNode> body) {
+        ArrayList<ASTNode> result = new ArrayList<>(body.size());
+        boolean changed = false;
+
+        for (ASTNode child : body) {
+            if (child instanceof IfClause) {
+                result.addAll(evaluateIfClause((IfClause) child));
+                changed = true;
                 continue;
             }
 
-            transformedStylerule.addChild(child);
+            ASTNode evaluated = child.accept(nodeEvaluator, null);
+            result.add(evaluated);
+            changed |= evaluated != child;
         }
 
-        stylerule.body = transformedStylerule.body;
+        return changed ? result : body;
     }
 
-    public void transformVariableAssignment(VariableAssignment assignment) {
-        assignment.expression = evaluateExpression(assignment.expression);
-        variableValues.putVariable(assignment.name.name, (Literal) assignment.expression);
-    }
+    // Remove duplicate declarations
+    public Stylerule evaluateStylerule(Stylerule stylerule) {
+        List<ASTNode> body = evaluateBody(stylerule.body);
 
-    public void transformDeclaration(Declaration declaration) {
-        declaration.expression = evaluateExpression(declaration.expression);
+        if (markLastDeclarations(body)) {
+            // The body of the input is shared, it isn't changed
+            if (body == stylerule.body) {
+                body = new ArrayList<>(body);
+            }
+            removeOverwrittenDeclarations(body);
+        } else if (body == stylerule.body) {
+            return stylerule;
+        }
+
+        Stylerule result = new Stylerule();
+        result.selectors.addAll(stylerule.selectors);
+        result.body.addAll(body);
+        return result;
     }
 
-    public void transformIfClause(IfClause clause, ASTNode parent) {
-        BoolLiteral result = (BoolLiteral) evaluateExpression(clause.conditionalExpression);
+    /*
+     Records the index of the last declaration of every property in lastIndex.
+     Returns true when a property is declared more than once.
+     */
+    private boolean markLastDeclarations(List<ASTNode> body) {
+        // A new stamp makes the indices of the previous rule invalid without clearing the arrays
+        stamp++;
+
+        boolean duplicates = false;
+        for (int i = 0; i < body.size(); i++) {
+            ASTNode child = body.get(i);
+            if (child instanceof Declaration) {
+                int id = ((Declaration) child).getProperty().getId();
+                if (id >= lastIndex.length) {
+                    lastIndex = Arrays.copyOf(lastIndex, Math.max(id + 1, lastIndex.length * 2));
+                    lastIndexStamp = Arrays.copyOf(lastIndexStamp, lastIndex.length);
+                }
+                duplicates |= lastIndexStamp[id] == stamp;
+                lastIndex[id] = i;
+                lastIndexStamp[id] = stamp;
+            }
+        }
+        return duplicates;
+    }
 
-        if (result.value) {
-            // Swap the body of the if statement with the parent node after it was parsed
-            clause.elseClause = null;
-        } else {
-            if (clause.elseClause != null) {
-                clause.body = clause.elseClause.body;
-            } else {
-                clause.body = new ArrayList<>();
+    // Moves every node that isn't overwritten by a later declaration forward, in one pass
+    private void removeOverwrittenDeclarations(List<ASTNode> body) {
+        int size = 0;
+        for (int i = 0; i < body.size(); i++) {
+            ASTNode child = body.get(i);
+            if (child instanceof Declaration && lastIndex[((Declaration) child).getProperty().getId()] != i) {
+                continue;
             }
+            body.set(size++, child);
         }
+        body.subList(size, body.size()).clear();
+    }
 
-        recursiveChildTransform(clause);
+    public VariableAssignment evaluateVariableAssignment(VariableAssignment assignment) {
+        Literal value = evaluateExpression(assignment.getExpression());
+        variableValues.putVariable(assignment.getName().getSymbol(), value);
 
-        for (ASTNode child : clause.body) {
-            parent.addChild(child);
+        if (value == assignment.getExpression()) {
+            return assignment;
         }
 
-        parent.removeChild(clause);
+        VariableAssignment result = new VariableAssignment();
+        result.setName(assignment.getName());
+        result.setExpression(value);
+        return result;
     }
 
-    public Literal evaluateExpression(Expression expression) {
-        if (expression instanceof Operation) {
-            return evaluateOperation((Operation) expression);
+    public Declaration evaluateDeclaration(Declaration declaration) {
+        Literal value = evaluateExpression(declaration.getExpression());
+        if (value == declaration.getExpression()) {
+            return declaration;
         }
 
-        if (expression instanceof VariableReference) {
-            return variableValues.getVariable(((VariableReference) expression).name);
-        }
-
-        return (Literal) expression;
+        Declaration result = new Declaration();
+        result.setProperty(declaration.getProperty());
+        result.setExpression(value);
+        return result;
     }
 
-    public Literal evaluateOperation(Operation operation) {
-        Literal left = evaluateExpression(operation.lhs);
-        Literal right = evaluateExpression(operation.rhs);
-
-        int leftValue = (int) left.getValue();
-        int rightValue = (int) right.getValue();
+    /**
+     * @return the evaluated body of the branch that is taken
+     */
+    public List<ASTNode> evaluateIfClause(IfClause clause) {
+        BoolLiteral result = (BoolLiteral) evaluateExpression(clause.getConditionalExpression());
 
-        if (operation instanceof MultiplyOperation) {
-            return cloneLiteralWithValue(left, leftValue * rightValue);
+        if (result.value) {
+            return evaluateBody(clause.body);
         }
-
-        if (operation instanceof AddOperation) {
-            return cloneLiteralWithValue(left, leftValue + rightValue);
+        if (clause.getElseClause() != null) {
+            return evaluateBody(clause.getElseClause().body);
         }
+        return new ArrayList<>();
+    }
 
-        if (operation instanceof SubtractOperation) {
-            return cloneLiteralWithValue(left, leftValue - rightValue);
-        }
+    public Literal evaluateExpression(Expression expression) {
+        return expression.accept(expressionEvaluator, null);
+    }
 
-        throw new RuntimeException("Evaluation type not found");
+    /**
+     * Folds an operation into one literal. The operands are folded as plain ints, so a deep
+     * expression only allocates the literal that comes out. The result has the unit of the
+     * operand that isn't a scalar, so 2 * 10px is 20px, like the Checker types it.
+     */
+    public Literal evaluateOperation(Operation operation) {
+        return Literal.numeric(unitOf(operation), valueOf(operation));
     }
 
-    private Literal cloneLiteralWithValue(Literal literal, int value) {
-        if (literal instanceof PixelLiteral) {
-            return new PixelLiteral(value);
+    // An instanceof ladder instead of a visitor, an ASTVisitor<Integer, Void> would box every value
+    private int valueOf(Expression expression) {
+        if (expression instanceof Literal) {
+            return ((NumericLiteral) expression).intValue();
         }
-
-        if (literal instanceof ScalarLiteral) {
-            return new ScalarLiteral(value);
+        if (expression instanceof VariableReference) {
+            return ((NumericLiteral) variableValues.getVariable(((VariableReference) expression).getSymbol())).intValue();
         }
-
-        if (literal instanceof PercentageLiteral) {
-            return new PercentageLiteral(value);
+        if (expression instanceof AddOperation) {
+            Operation operation = (Operation) expression;
+            return valueOf(operation.getLhs()) + valueOf(operation.getRhs());
+        }
+        if (expression instanceof SubtractOperation) {
+            Operation operation = (Operation) expression;
+            return valueOf(operation.getLhs()) - valueOf(operation.getRhs());
+        }
+        if (expression instanceof MultiplyOperation) {
+            Operation operation = (Operation) expression;
+            return valueOf(operation.getLhs()) * valueOf(operation.getRhs());
         }
+        throw new RuntimeException("Evaluation type not found");
+    }
 
-        throw new RuntimeException("Literal to clone not found");
+    private ExpressionType unitOf(Expression expression) {
+        if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            ExpressionType leftUnit = unitOf(operation.getLhs());
+            return leftUnit != ExpressionType.SCALAR ? leftUnit : unitOf(operation.getRhs());
+        }
+        return evaluateExpression(expression).getType();
     }
 }
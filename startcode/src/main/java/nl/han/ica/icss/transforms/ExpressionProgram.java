@@ -0,0 +1,238 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.NumericLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.Arrays;
+
+/**
+ * An expression compiled once into a flat program for a small stack machine, so it can be
+ * evaluated again and again with other variable values without walking the operation tree.
+ *
+ * Every value is an int: pixels, percentages and scalars are their number, a bool is 0 or 1
+ * and a color is its 24 bit RGB value (see colorValue). Variables are read from an int array
+ * by slot, the slots are resolved when the expression is compiled. The unit of the result
+ * doesn't depend on the values, so it is worked out once as well: the unit of the operand that
+ * isn't a scalar, the same type the Checker gives the expression.
+ */
+public class ExpressionProgram {
+    // Instructions, CONST and LOAD are followed by their operand
+    public static final int CONST = 0;
+    public static final int LOAD = 1;
+    public static final int ADD = 2;
+    public static final int SUBTRACT = 3;
+    public static final int MULTIPLY = 4;
+
+    /**
+     * Resolves the variables of an expression while it is compiled.
+     */
+    public interface Slots {
+        /**
+         * @return the slot of the variable that the name refers to at this point
+         */
+        int slotOf(String name);
+
+        /**
+         * @return the type of the values in the slot
+         */
+        ExpressionType typeOf(int slot);
+    }
+
+    private final int[] code;
+    private final int maxStack;
+    private final ExpressionType unit;
+
+    private ExpressionProgram(int[] code, int maxStack, ExpressionType unit) {
+        this.code = code;
+        this.maxStack = maxStack;
+        this.unit = unit;
+    }
+
+    /**
+     * @param expression an expression without semantic errors
+     */
+    public static ExpressionProgram compile(Expression expression, Slots slots) {
+        Compiler compiler = new Compiler(slots);
+        ExpressionType unit = compiler.compile(expression);
+        return new ExpressionProgram(Arrays.copyOf(compiler.code, compiler.size), compiler.maxDepth, unit);
+    }
+
+    public ExpressionType getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return the size of the stack that run needs
+     */
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * @return the instructions, CONST and LOAD followed by their operand. Don't change it.
+     */
+    public int[] getCode() {
+        return code;
+    }
+
+    /**
+     * Runs the program.
+     * @param slots the values of the variables
+     * @param stack at least getMaxStack() ints to work with
+     * @return the value of the expression
+     */
+    public int run(int[] slots, int[] stack) {
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case CONST:
+                    stack[++top] = code[pc + 1];
+                    pc += 2;
+                    break;
+                case LOAD:
+                    stack[++top] = slots[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] += stack[top + 1];
+                    pc++;
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] -= stack[top + 1];
+                    pc++;
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] *= stack[top + 1];
+                    pc++;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown instruction " + code[pc] + " at " + pc);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * @return the value of the expression as a literal
+     */
+    public Literal evaluate(int[] slots) {
+        return toLiteral(unit, run(slots, new int[maxStack]));
+    }
+
+    /**
+     * @return the value of a literal as a program sees it
+     * @throws IllegalArgumentException when a color literal isn't written as #rrggbb
+     */
+    public static int valueOf(Literal literal) {
+        switch (literal.getType()) {
+            case BOOL:
+                return ((BoolLiteral) literal).value ? 1 : 0;
+            case COLOR:
+                return colorValue(((ColorLiteral) literal).value);
+            default:
+                return ((NumericLiteral) literal).intValue();
+        }
+    }
+
+    /**
+     * @return a literal for a value of a program, a color comes back in lower case
+     */
+    public static Literal toLiteral(ExpressionType unit, int value) {
+        switch (unit) {
+            case BOOL:
+                return new BoolLiteral(value != 0);
+            case COLOR:
+                return new ColorLiteral(String.format("#%06x", value));
+            default:
+                return Literal.numeric(unit, value);
+        }
+    }
+
+    /**
+     * @return the RGB value of a color written as #rrggbb
+     */
+    public static int colorValue(String color) {
+        if (color.length() != 7 || color.charAt(0) != '#') {
+            throw new IllegalArgumentException("Not a #rrggbb color: " + color);
+        }
+        try {
+            return Integer.parseInt(color.substring(1), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a #rrggbb color: " + color, e);
+        }
+    }
+
+    // Writes the operands before the operation, the stack depth is counted along
+    private static class Compiler {
+        private final Slots slots;
+        private int[] code = new int[8];
+        private int size = 0;
+        private int depth = 0;
+        private int maxDepth = 0;
+
+        Compiler(Slots slots) {
+            this.slots = slots;
+        }
+
+        // Returns the unit of the expression
+        ExpressionType compile(Expression expression) {
+            if (expression instanceof Literal) {
+                Literal literal = (Literal) expression;
+                emit(CONST, valueOf(literal));
+                push();
+                return literal.getType();
+            }
+            if (expression instanceof VariableReference) {
+                int slot = slots.slotOf(((VariableReference) expression).name);
+                emit(LOAD, slot);
+                push();
+                return slots.typeOf(slot);
+            }
+
+            Operation operation = (Operation) expression;
+            ExpressionType leftUnit = compile(operation.getLhs());
+            ExpressionType rightUnit = compile(operation.getRhs());
+            if (operation instanceof AddOperation) {
+                emit(ADD);
+            } else if (operation instanceof SubtractOperation) {
+                emit(SUBTRACT);
+            } else if (operation instanceof MultiplyOperation) {
+                emit(MULTIPLY);
+            } else {
+                throw new IllegalArgumentException("Unknown operation " + operation.getNodeLabel());
+            }
+            depth--;
+            return leftUnit != ExpressionType.SCALAR ? leftUnit : rightUnit;
+        }
+
+        private void push() {
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private void emit(int instruction, int operand) {
+            emit(instruction);
+            emit(operand);
+        }
+
+        private void emit(int value) {
+            if (size == code.length) {
+                code = Arrays.copyOf(code, size * 2);
+            }
+            code[size++] = value;
+        }
+    }
+}
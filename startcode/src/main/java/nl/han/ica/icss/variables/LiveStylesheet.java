@@ -0,0 +1,148 @@
+package nl.han.ica.icss.variables;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.FusedGenerator;
+import nl.han.ica.icss.generator.Generator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A checked stylesheet of which the global variables can be given other values, for example
+ * for a theme. Only the rules that read a changed variable, directly or through other
+ * variables (see VariableDependencyGraph), are evaluated and generated again, the CSS of the
+ * other rules is kept. Works with the FusedGenerator, so the AST itself isn't changed.
+ */
+public class LiveStylesheet {
+
+    private final VariableDependencyGraph graph;
+    private final FusedGenerator generator = new FusedGenerator();
+
+    private final Map<String, Literal> overrides = new HashMap<>();
+    private final Map<String, Literal> defaults = new HashMap<>();
+    private Map<String, Literal> values = new HashMap<>();
+
+    // Generated CSS per rule, a rule without CSS has to be generated again
+    private final Map<Stylerule, String> css = new IdentityHashMap<>();
+    private long renderCount = 0;
+
+    /**
+     * @param ast a stylesheet without semantic errors
+     */
+    public LiveStylesheet(AST ast) {
+        graph = new VariableDependencyGraph(ast);
+        evaluateGlobals(defaults);
+        values.putAll(defaults);
+    }
+
+    public VariableDependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the value of a global variable, with the overrides applied
+     */
+    public Literal getVariable(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * Gives a global variable another value. Globals assigned from it change along.
+     * @throws IllegalArgumentException when there is no such global or the value has another type
+     */
+    public void setVariable(String name, Literal value) {
+        setVariables(Collections.singletonMap(name, value));
+    }
+
+    /**
+     * Same as setVariable for every entry, the affected rules are found in one go.
+     */
+    public void setVariables(Map<String, Literal> changes) {
+        checkOverrides(graph, defaults, changes);
+
+        overrides.putAll(changes);
+        Map<String, Literal> newValues = new HashMap<>();
+        evaluateGlobals(newValues);
+        values = newValues;
+
+        for (Stylerule stylerule : graph.affectedRules(changes.keySet())) {
+            css.remove(stylerule);
+        }
+    }
+
+    /**
+     * Removes all overrides, the rules that depended on them are generated again.
+     */
+    public void reset() {
+        Set<String> changed = overrides.keySet();
+        for (Stylerule stylerule : graph.affectedRules(changed)) {
+            css.remove(stylerule);
+        }
+
+        overrides.clear();
+        values = new HashMap<>(defaults);
+    }
+
+    public String generate() {
+        return Generator.toString(this::generate);
+    }
+
+    /**
+     * Writes the CSS of every rule, only the rules that changed since the last call are generated.
+     */
+    public void generate(Appendable out) throws IOException {
+        for (Stylerule stylerule : graph.getStylerules()) {
+            String ruleCss = css.get(stylerule);
+            if (ruleCss == null) {
+                StringBuilder builder = new StringBuilder();
+                failOnErrors(generator.generateStylerule(stylerule, graph.valuesReadBy(stylerule, values), builder));
+                ruleCss = builder.toString();
+                css.put(stylerule, ruleCss);
+                renderCount++;
+            }
+            out.append(ruleCss);
+        }
+    }
+
+    /**
+     * @return the number of times a rule was generated, for tests and statistics
+     */
+    public long getRenderCount() {
+        return renderCount;
+    }
+
+    // Overrides have to be globals and have the same type as the value they replace
+    static void checkOverrides(VariableDependencyGraph graph, Map<String, Literal> defaults,
+                               Map<String, Literal> overrides) {
+        for (Map.Entry<String, Literal> override : overrides.entrySet()) {
+            String name = override.getKey();
+            if (!graph.isGlobal(name)) {
+                throw new IllegalArgumentException("Not a global variable: " + name);
+            }
+
+            Literal current = defaults.get(name);
+            if (current.getClass() != override.getValue().getClass()) {
+                throw new IllegalArgumentException("Variable " + name + " expects a " + current.getClass().getSimpleName()
+                        + " but got a " + override.getValue().getClass().getSimpleName());
+            }
+        }
+    }
+
+    private void evaluateGlobals(Map<String, Literal> result) {
+        failOnErrors(generator.evaluateVariableAssignments(graph.getGlobals(), overrides, result));
+    }
+
+    static void failOnErrors(List<SemanticError> errors) {
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Stylesheet has errors: " + errors);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package nl.han.ica.icss.variables;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compiles one checked stylesheet for many sets of global variable values (themes), in parallel.
+ *
+ * The stylesheet is checked once, every theme is evaluated with the Evaluator and generated with
+ * the Generator, so a theme gets the same CSS as the Pipeline gives for the stylesheet with the
+ * overrides put in the source. The Evaluator doesn't change the AST, so all worker threads share
+ * the same tree. The CSS of a rule that doesn't read any overridden variable is generated once up
+ * front and reused by every theme.
+ *
+ * The themes are compiled on one pool for the lifetime of the ThemeCompiler, so its workers
+ * keep their Evaluator and Generator from one compile call to the next. Close the ThemeCompiler
+ * to shut down a pool it made itself, a pool that was passed in is left running.
+ */
+public class ThemeCompiler implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final VariableDependencyGraph graph;
+    private final Map<String, Literal> defaults = new HashMap<>();
+    // CSS of every rule with the default values, in source order
+    private final String[] defaultCss;
+
+    // The Evaluator and Generator keep state during a run, so every worker has its own
+    private final ThreadLocal<Evaluator> evaluators = ThreadLocal.withInitial(Evaluator::new);
+    private final ThreadLocal<Generator> generators = ThreadLocal.withInitial(Generator::new);
+
+    /**
+     * @param ast a stylesheet without semantic errors, only the errors of the nodes are changed
+     * @param threads number of worker threads in the pool of the ThemeCompiler
+     * @throws IllegalStateException when the stylesheet has semantic errors
+     */
+    public ThemeCompiler(AST ast, int threads) {
+        this(ast, null, threads);
+    }
+
+    /**
+     * Compiles the themes on the given pool, like a pool the rest of the application uses.
+     * @throws IllegalStateException when the stylesheet has semantic errors
+     */
+    public ThemeCompiler(AST ast, ForkJoinPool pool) {
+        this(ast, pool, pool.getParallelism());
+    }
+
+    private ThemeCompiler(AST ast, ForkJoinPool pool, int threads) {
+        new Checker().check(ast);
+        LiveStylesheet.failOnErrors(ast.getErrors());
+        graph = new VariableDependencyGraph(ast);
+
+        defaults.putAll(evaluateGlobals(Collections.emptyMap()));
+
+        List<Stylerule> stylerules = graph.getStylerules();
+        defaultCss = new String[stylerules.size()];
+        for (int i = 0; i < defaultCss.length; i++) {
+            defaultCss[i] = generateStylerule(stylerules.get(i), defaults);
+        }
+
+        // Only made once the stylesheet is known to be valid, so no pool is left behind
+        ownsPool = pool == null;
+        this.pool = ownsPool ? new ForkJoinPool(threads) : pool;
+    }
+
+    public VariableDependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Compiles the stylesheet once for every map of overrides, see LiveStylesheet.setVariable
+     * for what an override may be.
+     * @return the CSS per theme, in the same order as the themes
+     * @throws IllegalArgumentException when an override isn't a global or has another type
+     */
+    public List<String> compile(List<Map<String, Literal>> themes) {
+        for (Map<String, Literal> overrides : themes) {
+            LiveStylesheet.checkOverrides(graph, defaults, overrides);
+        }
+
+        String[] results = new String[themes.size()];
+        pool.invoke(new ThemeTask(themes, results, 0, themes.size()));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Compiles one theme on the calling thread.
+     */
+    public String compile(Map<String, Literal> overrides) {
+        LiveStylesheet.checkOverrides(graph, defaults, overrides);
+        return compileTheme(overrides);
+    }
+
+    /**
+     * Shuts down the pool when the ThemeCompiler made it, the themes that are being compiled
+     * are finished first.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private String compileTheme(Map<String, Literal> overrides) {
+        Map<String, Literal> values = evaluateGlobals(overrides);
+
+        Set<Stylerule> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+        affected.addAll(graph.affectedRules(overrides.keySet()));
+
+        List<Stylerule> stylerules = graph.getStylerules();
+        StringBuilder css = new StringBuilder();
+        for (int i = 0; i < defaultCss.length; i++) {
+            Stylerule stylerule = stylerules.get(i);
+            if (affected.contains(stylerule)) {
+                css.append(generateStylerule(stylerule, values));
+            } else {
+                css.append(defaultCss[i]);
+            }
+        }
+        return css.toString();
+    }
+
+    private Map<String, Literal> evaluateGlobals(Map<String, Literal> overrides) {
+        return evaluators.get().evaluateVariableAssignments(graph.getGlobals(), overrides, new ArrayList<>());
+    }
+
+    private String generateStylerule(Stylerule stylerule, Map<String, Literal> values) {
+        Stylerule evaluated = evaluators.get().evaluateStylerule(stylerule, graph.valuesReadBy(stylerule, values));
+        return generators.get().generate(evaluated);
+    }
+
+    // Splits the themes in halves until a single theme remains, idle workers steal the other halves
+    private class ThemeTask extends RecursiveAction {
+        private final List<Map<String, Literal>> themes;
+        private final String[] results;
+        private final int from;
+        private final int to;
+
+        ThemeTask(List<Map<String, Literal>> themes, String[] results, int from, int to) {
+            this.themes = themes;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    results[from] = compileTheme(themes.get(from));
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ThemeTask(themes, results, from, middle), new ThemeTask(themes, results, middle, to));
+        }
+    }
+}
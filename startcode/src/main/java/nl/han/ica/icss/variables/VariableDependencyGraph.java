@@ -0,0 +1,190 @@
+package nl.han.ica.icss.variables;
+
+import nl.han.ica.icss.ast.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which global variables every part of a stylesheet reads, so a change of a global
+ * only has to redo the style rules that depend on it.
+ *
+ * Globals are the variables assigned at the top of the stylesheet, a global can read earlier
+ * ones. Inside a rule a variable can also be assigned locally, a reference to it then reads
+ * every global the local value was made from. Locals aren't tracked per scope or per branch,
+ * so a rule can depend on a global it doesn't end up reading, but never the other way round.
+ */
+public class VariableDependencyGraph {
+
+    private final List<VariableAssignment> globals = new ArrayList<>();
+    // Per assignment in globals, the globals its expression reads
+    private final List<Set<String>> globalReads = new ArrayList<>();
+    private final Set<String> globalNames = new HashSet<>();
+
+    private final List<Stylerule> stylerules = new ArrayList<>();
+    private final Map<Stylerule, Set<String>> ruleReads = new IdentityHashMap<>();
+    // Declarations and if clauses per global they read
+    private final Map<String, List<ASTNode>> readers = new HashMap<>();
+
+    // Globals read through the variables assigned so far in the rule that is built
+    private final Map<String, Set<String>> localReads = new HashMap<>();
+
+    public VariableDependencyGraph(AST ast) {
+        for (ASTNode child : ast.root.body) {
+            if (child instanceof VariableAssignment) {
+                addGlobal((VariableAssignment) child);
+            } else if (child instanceof Stylerule) {
+                addStylerule((Stylerule) child);
+            }
+        }
+    }
+
+    /**
+     * @return the global variable assignments in source order
+     */
+    public List<VariableAssignment> getGlobals() {
+        return Collections.unmodifiableList(globals);
+    }
+
+    public boolean isGlobal(String name) {
+        return globalNames.contains(name);
+    }
+
+    /**
+     * @return the style rules in source order
+     */
+    public List<Stylerule> getStylerules() {
+        return Collections.unmodifiableList(stylerules);
+    }
+
+    /**
+     * @return the globals the rule reads, directly or through other variables
+     */
+    public Set<String> reads(Stylerule stylerule) {
+        Set<String> names = ruleReads.get(stylerule);
+        return names == null ? Collections.emptySet() : Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return the values of the globals the rule reads, taken from all values. Generating a rule
+     * with only these costs the same no matter how many globals there are.
+     */
+    public Map<String, Literal> valuesReadBy(Stylerule stylerule, Map<String, Literal> values) {
+        Map<String, Literal> read = new HashMap<>();
+        for (String name : reads(stylerule)) {
+            read.put(name, values.get(name));
+        }
+        return read;
+    }
+
+    /**
+     * @return the declarations and if clauses (for their condition) that read the global
+     */
+    public List<ASTNode> readersOf(String global) {
+        return Collections.unmodifiableList(readers.getOrDefault(global, Collections.emptyList()));
+    }
+
+    /**
+     * @return the changed globals plus every global that is assigned from one of them
+     */
+    public Set<String> affectedVariables(Set<String> changed) {
+        Set<String> affected = new HashSet<>(changed);
+        // An assignment can only read globals assigned before it, so one pass in order is enough
+        for (int i = 0; i < globals.size(); i++) {
+            if (!Collections.disjoint(globalReads.get(i), affected)) {
+                affected.add(globals.get(i).getName().name);
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * @return the rules that have to be evaluated again when the globals change, in source order
+     */
+    public List<Stylerule> affectedRules(Set<String> changed) {
+        Set<String> affected = affectedVariables(changed);
+
+        List<Stylerule> result = new ArrayList<>();
+        for (Stylerule stylerule : stylerules) {
+            if (!Collections.disjoint(ruleReads.get(stylerule), affected)) {
+                result.add(stylerule);
+            }
+        }
+        return result;
+    }
+
+    private void addGlobal(VariableAssignment assignment) {
+        Set<String> names = new LinkedHashSet<>();
+        collectReads(assignment.getExpression(), names);
+
+        globals.add(assignment);
+        globalReads.add(names);
+        globalNames.add(assignment.getName().name);
+    }
+
+    private void addStylerule(Stylerule stylerule) {
+        Set<String> names = new LinkedHashSet<>();
+        localReads.clear();
+        addBody(stylerule.body, names);
+
+        stylerules.add(stylerule);
+        ruleReads.put(stylerule, names);
+    }
+
+    private void addBody(List<ASTNode> body, Set<String> ruleNames) {
+        for (ASTNode child : body) {
+            if (child instanceof Declaration) {
+                addReader(child, ((Declaration) child).getExpression(), ruleNames);
+            } else if (child instanceof VariableAssignment) {
+                VariableAssignment assignment = (VariableAssignment) child;
+                Set<String> names = new HashSet<>();
+                collectReads(assignment.getExpression(), names);
+                localReads.computeIfAbsent(assignment.getName().name, name -> new HashSet<>()).addAll(names);
+            } else if (child instanceof IfClause) {
+                IfClause clause = (IfClause) child;
+                addReader(clause, clause.getConditionalExpression(), ruleNames);
+                addBody(clause.body, ruleNames);
+                if (clause.getElseClause() != null) {
+                    addBody(clause.getElseClause().body, ruleNames);
+                }
+            }
+        }
+    }
+
+    private void addReader(ASTNode reader, Expression expression, Set<String> ruleNames) {
+        Set<String> names = new LinkedHashSet<>();
+        collectReads(expression, names);
+
+        for (String name : names) {
+            readers.computeIfAbsent(name, key -> new ArrayList<>()).add(reader);
+        }
+        ruleNames.addAll(names);
+    }
+
+    // Adds the globals the expression reads, outside of a rule localReads is empty
+    private void collectReads(ASTNode node, Set<String> names) {
+        if (node == null) {
+            return;
+        }
+
+        if (node instanceof VariableReference) {
+            String name = ((VariableReference) node).name;
+            // A local can be assigned in a branch that isn't taken, then the global is read
+            if (globalNames.contains(name)) {
+                names.add(name);
+            }
+            names.addAll(localReads.getOrDefault(name, Collections.emptySet()));
+        }
+
+        for (int i = 0; i < node.childCount(); i++) {
+            collectReads(node.childAt(i), names);
+        }
+    }
+}
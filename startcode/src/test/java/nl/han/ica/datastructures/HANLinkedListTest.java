@@ -81,4 +81,58 @@ public class HANLinkedListTest {
         Assertions.assertEquals(2, sut.getSize());
         Assertions.assertEquals(1337, sut.get(0));
     }
+
+    @Test
+    void testAddLast() {
+        sut.addLast(1);
+        sut.addLast(2);
+        sut.addFirst(0);
+
+        Assertions.assertEquals(3, sut.getSize());
+        Assertions.assertEquals(0, sut.get(0));
+        Assertions.assertEquals(2, sut.get(2));
+        Assertions.assertEquals(2, sut.last.getValue());
+    }
+
+    @Test
+    void testInsertAtEnd() {
+        sut.insert(0, 1);
+        sut.insert(1, 2);
+        sut.insert(2, 3);
+
+        Assertions.assertEquals(3, sut.getSize());
+        Assertions.assertEquals(3, sut.last.getValue());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> sut.insert(5, 4));
+    }
+
+    @Test
+    void testDeleteMiddleAndLast() {
+        sut.addLast(1);
+        sut.addLast(2);
+        sut.addLast(3);
+
+        sut.delete(1);
+        Assertions.assertEquals(2, sut.getSize());
+        Assertions.assertEquals(3, sut.get(1));
+
+        sut.delete(1);
+        Assertions.assertEquals(1, sut.getSize());
+        Assertions.assertEquals(1, sut.last.getValue());
+
+        sut.addLast(4);
+        Assertions.assertEquals(4, sut.get(1));
+    }
+
+    @Test
+    void testIterator() {
+        sut.addLast(1);
+        sut.addLast(2);
+        sut.addLast(3);
+
+        int expected = 1;
+        for (Object value : sut) {
+            Assertions.assertEquals(expected++, value);
+        }
+        Assertions.assertEquals(4, expected);
+    }
 }
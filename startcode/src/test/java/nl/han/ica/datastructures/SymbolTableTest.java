@@ -0,0 +1,75 @@
+package nl.han.ica.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SymbolTableTest {
+    SymbolTable<String, Integer> sut;
+
+    @BeforeEach
+    void setup() {
+        sut = new SymbolTable<>();
+    }
+
+    @Test
+    void testPutAndGet() {
+        sut.pushScope();
+        sut.putVariable("Width", 1);
+
+        Assertions.assertEquals(1, sut.getVariable("Width"));
+        Assertions.assertNull(sut.getVariable("Height"));
+    }
+
+    @Test
+    void testShadowingIsUndoneOnPop() {
+        sut.pushScope();
+        sut.putVariable("Width", 1);
+
+        sut.pushScope();
+        sut.putVariable("Width", 2);
+        sut.putVariable("Width", 3);
+        sut.putVariable("Height", 4);
+        Assertions.assertEquals(3, sut.getVariable("Width"));
+        Assertions.assertEquals(4, sut.getVariable("Height"));
+
+        sut.popScope();
+        Assertions.assertEquals(1, sut.getVariable("Width"));
+        Assertions.assertNull(sut.getVariable("Height"));
+    }
+
+    @Test
+    void testOuterScopeIsVisible() {
+        sut.pushScope();
+        sut.putVariable("Global", 1);
+        sut.pushScope();
+        sut.pushScope();
+
+        Assertions.assertEquals(1, sut.getVariable("Global"));
+        Assertions.assertEquals(3, sut.getSize());
+    }
+
+    @Test
+    void testManyKeysAndScopes() {
+        sut.pushScope();
+        for (int i = 0; i < 1000; i++) {
+            sut.pushScope();
+            sut.putVariable("Var" + i, i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, sut.getVariable("Var" + i));
+        }
+
+        for (int i = 999; i >= 0; i--) {
+            sut.popScope();
+            Assertions.assertNull(sut.getVariable("Var" + i));
+        }
+        Assertions.assertEquals(1, sut.getSize());
+    }
+
+    @Test
+    void testPopWithoutScope() {
+        Assertions.assertThrows(IllegalStateException.class, () -> sut.popScope());
+    }
+}
@@ -0,0 +1,105 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.ASTNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static nl.han.ica.icss.parser.Sources.resource;
+
+public class IncrementalPipelineTest {
+    private static final String SOURCE = "Width := 10px;\n"
+            + "Main := #ff0000;\n"
+            + "p { width: Width; }\n"
+            + "a { color: Main; if[TRUE] { background-color: #000000; } }\n"
+            + "#menu { height: 5%; }\n";
+
+    IncrementalPipeline sut;
+
+    @BeforeEach
+    void setup() {
+        sut = new IncrementalPipeline();
+    }
+
+    // Runs every stage like the editor does, returns the errors or the CSS
+    private static String compile(Pipeline pipeline, String source) {
+        pipeline.parseString(source);
+        if (!pipeline.isParsed()) {
+            return pipeline.getErrors().toString();
+        }
+        pipeline.clearErrors();
+        if (!pipeline.check()) {
+            return pipeline.getErrors().toString();
+        }
+        pipeline.clearErrors();
+        pipeline.transform();
+        return pipeline.generate();
+    }
+
+    private ASTNode rule(int index) {
+        return sut.getAST().root.body.get(2 + index);
+    }
+
+    @Test
+    void testSameResultAsPipeline() throws IOException {
+        List<String> sources = List.of(resource("level0.icss"), resource("level1.icss"), resource("level2.icss"),
+                resource("level3.icss"), SOURCE,
+                "A := 1px;\np { width: A + #ff0000; color: B; }\nA := 2px;\n",
+                "p { width: 1px }",
+                "p { width: 1px; } }",
+                "A := 1px;\nA := #ffffff;\np { width: A; }");
+
+        for (String source : sources) {
+            // Compile every source twice with the same pipeline, the second time reuses everything
+            Assertions.assertEquals(compile(new Pipeline(), source), compile(sut, source), source);
+            Assertions.assertEquals(compile(new Pipeline(), source), compile(sut, source), source);
+        }
+    }
+
+    @Test
+    void testOnlyChangedRuleIsParsed() {
+        sut.parseString(SOURCE);
+        ASTNode p = rule(0);
+        ASTNode menu = rule(2);
+
+        sut.parseString(SOURCE.replace("a { color: Main;", "a { color: #00ff00;"));
+
+        Assertions.assertSame(p, rule(0));
+        Assertions.assertSame(menu, rule(2));
+    }
+
+    @Test
+    void testOnlyDependentsOfChangedVariableAreChecked() {
+        sut.parseString(SOURCE);
+        sut.check();
+        ASTNode p = rule(0);
+        ASTNode a = rule(1);
+
+        // Main gets another type, so only the rule using it is checked again
+        sut.parseString(SOURCE.replace("Main := #ff0000;", "Main := 10px;"));
+        sut.clearErrors();
+        Assertions.assertFalse(sut.check());
+
+        Assertions.assertSame(p, rule(0));
+        Assertions.assertNotSame(a, rule(1));
+        Assertions.assertEquals(List.of("ERROR: Color properties should be assigned a color literal"), sut.getErrors());
+    }
+
+    @Test
+    void testOnlyAffectedRulesAreTransformed() {
+        compile(sut, SOURCE);
+        ASTNode p = rule(0);
+        ASTNode a = rule(1);
+
+        String changed = SOURCE.replace("Width := 10px;", "Width := 20px;");
+        Assertions.assertEquals("p {\n  width: 20px;\n}\n\n"
+                + "a {\n  color: #ff0000;\n  background-color: #000000;\n}\n\n"
+                + "#menu {\n  height: 5%;\n}\n\n", compile(sut, changed));
+
+        Assertions.assertNotSame(p, rule(0));
+        Assertions.assertSame(a, rule(1));
+    }
+}
@@ -0,0 +1,139 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static nl.han.ica.icss.parser.Sources.resource;
+
+public class ParallelParsingTest {
+
+    private static String large() {
+        StringBuilder source = new StringBuilder("Size := 3px;\nOn := TRUE;\nColor := #00ff00;\n");
+        for (int i = 0; i < 1000; i++) {
+            source.append(".rule").append(i).append(" {\n  width: Size * ").append(i)
+                    .append(";\n  if[On] { color: Color; } else { height: ").append(i).append("%; }\n}\n");
+        }
+        return source.toString();
+    }
+
+    private static List<String> sources() throws IOException {
+        return List.of(resource("level0.icss"), resource("level1.icss"), resource("level2.icss"),
+                resource("level3.icss"), large(),
+                // Syntax errors, in the globals, in a rule and between rules
+                "A := 1px\np { width: A; }\n",
+                "A := ;\nB := 2px;\np { width: B; } a { width 1px; }\n",
+                "A := 1px;\np { width: 1px }\na { color: #ffffff; }\n",
+                "p { width: 1px; }\nA := 2px;\na { width: A; }\n",
+                "p { width: 1px; } ! a { height: 2px; }\n",
+                "p { width: 1px; } }",
+                "");
+    }
+
+    // The errors, and the AST when there are none. Only the rule with an error is parsed again,
+    // so what the parser makes of the rest of the input is left out.
+    private static List<String> parse(String source, boolean direct, int threads) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setDirectParsing(direct);
+        pipeline.setParsingThreads(threads);
+        pipeline.parseString(source);
+
+        List<String> result = new ArrayList<>();
+        result.add(pipeline.isParsed() ? pipeline.getAST().toString() : "");
+        result.add(String.valueOf(pipeline.isParsed()));
+        result.addAll(pipeline.getErrors());
+        return result;
+    }
+
+    @Test
+    void testSameAsSerial() throws IOException {
+        for (String source : sources()) {
+            for (boolean direct : new boolean[]{false, true}) {
+                Assertions.assertEquals(parse(source, direct, 1), parse(source, direct, 4), source);
+            }
+        }
+    }
+
+    @Test
+    void testStitchesRulesInSourceOrder() {
+        Pipeline sut = new Pipeline();
+        sut.setParsingThreads(4);
+        sut.parseString(large());
+
+        Assertions.assertTrue(sut.isParsed(), sut.getErrors().toString());
+        Assertions.assertEquals(3 + 1000, sut.getAST().root.body.size());
+        Assertions.assertEquals(new ClassSelector(".rule999"), sut.getAST().root.body.get(1002).getChildren().get(0));
+        Assertions.assertTrue(sut.check(), sut.getErrors().toString());
+    }
+
+    @Test
+    void testOnCallersPool() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Assertions.assertEquals(parse(large(), false, 1), pool.submit(() -> parse(large(), false, 4)).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testOnlyRulesWithErrorsAreParsedAgain() {
+        String source = "A := 1px;\np { width: A; }\na { width 1px; }\ndiv { height: 2px; }\n#menu { color }\n";
+        for (boolean direct : new boolean[]{false, true}) {
+            List<String> inputs = new ArrayList<>();
+            Pipeline sut = new Pipeline() {
+                @Override
+                protected AST parse(CharStream inputStream, int firstLine) {
+                    inputs.add(firstLine + ": " + inputStream);
+                    return super.parse(inputStream, firstLine);
+                }
+            };
+            sut.setDirectParsing(direct);
+            sut.setParsingThreads(4);
+            sut.parseString(source);
+
+            Assertions.assertFalse(sut.isParsed());
+            if (direct) {
+                // Stops at the first error
+                Assertions.assertEquals(List.of("1: A := 1px;", "3: a { width 1px; }"), inputs);
+                Assertions.assertEquals(1, sut.getErrors().size());
+            } else {
+                Assertions.assertEquals(List.of("1: A := 1px;", "3: a { width 1px; }", "5: #menu { color }"), inputs);
+                Assertions.assertEquals(2, sut.getErrors().size());
+                // The rules without errors are kept
+                Assertions.assertTrue(sut.getAST().toString().contains("[TagSelector div|]"), sut.getAST().toString());
+            }
+        }
+    }
+
+    @Test
+    void testErrorLines() {
+        String source = "A := 1px;\np { width: A; }\n\na {\n  width 1px;\n}\ndiv { height: 2px; }\n";
+        List<String> serial = new ArrayList<>();
+        List<String> parallel = new ArrayList<>();
+        for (List<String> lines : List.of(serial, parallel)) {
+            Pipeline pipeline = new Pipeline() {
+                @Override
+                public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                        int charPositionInLine, String msg, RecognitionException e) {
+                    lines.add(line + ":" + charPositionInLine);
+                    super.syntaxError(recognizer, offendingSymbol, line, charPositionInLine, msg, e);
+                }
+            };
+            pipeline.setParsingThreads(lines == serial ? 1 : 4);
+            pipeline.parseString(source);
+        }
+
+        Assertions.assertEquals(List.of("5:8"), serial);
+        Assertions.assertEquals(serial, parallel);
+    }
+}
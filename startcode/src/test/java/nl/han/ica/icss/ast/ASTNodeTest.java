@@ -0,0 +1,107 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class ASTNodeTest {
+
+    private static Declaration declaration(String property, int pixels) {
+        return (Declaration) new Declaration(property).addChild(new PixelLiteral(pixels));
+    }
+
+    private static Stylerule stylerule(int pixels) {
+        return (Stylerule) new Stylerule()
+                .addChild(new TagSelector("p"))
+                .addChild(declaration("width", pixels))
+                .addChild(declaration("height", 2));
+    }
+
+    @Test
+    void testRemoveChildRemovesTheSameNode() {
+        Declaration first = declaration("width", 1);
+        Declaration second = declaration("width", 1);
+        Stylerule stylerule = (Stylerule) new Stylerule().addChild(first).addChild(second);
+        Assertions.assertEquals(first, second);
+
+        stylerule.removeChild(second);
+        Assertions.assertEquals(1, stylerule.body.size());
+        Assertions.assertSame(first, stylerule.body.get(0));
+    }
+
+    @Test
+    void testEquality() {
+        Assertions.assertEquals(stylerule(1), stylerule(1));
+        Assertions.assertEquals(stylerule(1).hashCode(), stylerule(1).hashCode());
+        Assertions.assertNotEquals(stylerule(1), stylerule(3));
+
+        Assertions.assertNotEquals(declaration("width", 1), declaration("height", 1));
+
+        AddOperation add = (AddOperation) new AddOperation().addChild(new ScalarLiteral(1)).addChild(new ScalarLiteral(2));
+        MultiplyOperation multiply = (MultiplyOperation) new MultiplyOperation()
+                .addChild(new ScalarLiteral(1)).addChild(new ScalarLiteral(2));
+        Assertions.assertNotEquals(add, multiply);
+    }
+
+    @Test
+    void testChangedTreeIsHashedAgain() {
+        Stylerule stylerule = stylerule(1);
+        int hash = stylerule.hashCode();
+
+        stylerule.addChild(declaration("color", 3));
+        Assertions.assertNotEquals(hash, stylerule.hashCode());
+        Assertions.assertNotEquals(stylerule(1), stylerule);
+    }
+
+    @Test
+    void testChangeBelowHashedNode() {
+        Stylerule first = stylerule(1);
+        Stylerule second = stylerule(3);
+        Assertions.assertNotEquals(first, second);
+
+        // Only the declaration is changed, the hash of the rule above it is dropped as well
+        ((Declaration) second.body.get(0)).setExpression(new PixelLiteral(1));
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+
+        AddOperation operation = (AddOperation) new AddOperation().addChild(new ScalarLiteral(1)).addChild(new ScalarLiteral(2));
+        Declaration declaration = (Declaration) new Declaration("width").addChild(operation);
+        Stylesheet stylesheet = new Stylesheet();
+        stylesheet.addChild(new Stylerule(new TagSelector("p"), List.of(declaration)));
+        int hash = stylesheet.hashCode();
+        operation.setRhs(new ScalarLiteral(3));
+        Assertions.assertNotEquals(hash, stylesheet.hashCode());
+    }
+
+    @Test
+    void testChangeThroughChildList() {
+        Stylerule first = stylerule(1);
+        Stylerule second = stylerule(1);
+        Assertions.assertEquals(first, second);
+
+        second.body.set(1, declaration("height", 5));
+        Assertions.assertNotEquals(first, second);
+        second.body.removeIf(child -> ((Declaration) child).getProperty().name.equals("height"));
+        first.body.subList(1, 2).clear();
+        Assertions.assertEquals(first, second);
+    }
+
+    @Test
+    void testSharedNode() {
+        Declaration shared = declaration("width", 1);
+        Stylerule first = (Stylerule) new Stylerule().addChild(new TagSelector("p")).addChild(shared);
+        Stylerule second = (Stylerule) new Stylerule().addChild(new TagSelector("a")).addChild(shared);
+        int firstHash = first.hashCode();
+        int secondHash = second.hashCode();
+
+        shared.setExpression(new PixelLiteral(2));
+        Assertions.assertNotEquals(firstHash, first.hashCode());
+        Assertions.assertNotEquals(secondHash, second.hashCode());
+    }
+}
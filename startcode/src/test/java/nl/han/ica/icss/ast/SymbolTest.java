@@ -0,0 +1,95 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class SymbolTest {
+
+    @Test
+    void testOneSymbolPerName() {
+        Symbol symbol = Symbol.of(new String("symbol-test"));
+        Assertions.assertSame(symbol, Symbol.of("symbol-test"));
+        Assertions.assertNotSame(symbol, Symbol.of("symbol-test-2"));
+        Assertions.assertNotEquals(symbol.getId(), Symbol.of("symbol-test-2").getId());
+        Assertions.assertEquals(symbol.getId(), symbol.hashCode());
+    }
+
+    @Test
+    void testNodesShareTheName() {
+        ClassSelector first = new ClassSelector(new String(".shared"));
+        ClassSelector second = new ClassSelector(new String(".shared"));
+        Assertions.assertSame(first.cls, second.cls);
+        Assertions.assertSame(first.getSymbol(), second.getSymbol());
+
+        Assertions.assertSame(Symbol.of("Shared"), new VariableReference(new String("Shared")).getSymbol());
+
+        Assertions.assertSame(PropertyName.WIDTH, new PropertyName("width").getSymbol());
+        Assertions.assertEquals(PropertyName.WIDTH.getId(), new PropertyName("width").getId());
+    }
+
+    @Test
+    void testPropertiesHaveTheirOwnIds() {
+        for (int i = 0; i < 100; i++) {
+            Symbol.of("Global" + i);
+        }
+        Assertions.assertEquals(0, new PropertyName("width").getId());
+        Assertions.assertEquals(1, PropertyName.HEIGHT.getId());
+        Assertions.assertEquals(2, PropertyName.COLOR.getId());
+        Assertions.assertEquals(3, PropertyName.BACKGROUND_COLOR.getId());
+        Assertions.assertNotSame(Symbol.of("width"), Symbol.property("width"));
+    }
+
+    @Test
+    void testUnusedNamesAreDropped() throws InterruptedException {
+        int before = Symbol.nameIdCount();
+        for (int round = 0; round < 10; round++) {
+            WeakReference<Symbol> last = null;
+            for (int i = 0; i < 1000; i++) {
+                last = new WeakReference<>(Symbol.of("Dropped" + round + "-" + i));
+            }
+            for (int attempt = 0; attempt < 100 && last.get() != null; attempt++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+        }
+
+        // Every round can reuse the ids of the rounds before it
+        Assertions.assertTrue(Symbol.nameIdCount() - before < 5000, "ids: " + (Symbol.nameIdCount() - before));
+    }
+
+    @Test
+    void testConcurrentInterning() throws Exception {
+        List<String> names = IntStream.range(0, 2000).mapToObj(i -> "Concurrent" + i).collect(Collectors.toList());
+        ConcurrentHashMap<String, Symbol> seen = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = IntStream.range(0, 4).mapToObj(thread -> executor.submit(() -> {
+                for (String name : names) {
+                    Symbol symbol = Symbol.of(new String(name));
+                    Symbol previous = seen.putIfAbsent(name, symbol);
+                    Assertions.assertTrue(previous == null || previous == symbol);
+                }
+            })).collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long distinctIds = names.stream().map(Symbol::of).mapToInt(Symbol::getId).distinct().count();
+        Assertions.assertEquals(names.size(), distinctIds);
+    }
+}
@@ -0,0 +1,108 @@
+package nl.han.ica.icss.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class CompilationCacheTest {
+    private static final String SOURCE = "p { width: 10px + 5px; }";
+    private static final String MODE = "test";
+
+    private final AtomicInteger compiles = new AtomicInteger();
+    private final Function<String, CompilationResult> countingCompiler = source -> {
+        compiles.incrementAndGet();
+        return new CompilationResult(source.toUpperCase(), List.of());
+    };
+
+    @Test
+    void testCompile() throws IOException {
+        CompilationCache sut = new CompilationCache(4, null);
+
+        CompilationResult result = sut.compile(SOURCE);
+
+        Assertions.assertTrue(result.isSuccessful());
+        Assertions.assertEquals("p {\n  width: 15px;\n}\n\n", result.getCss());
+        Assertions.assertSame(result, sut.compile(SOURCE));
+    }
+
+    @Test
+    void testErrorsAreCached() throws IOException {
+        CompilationCache sut = new CompilationCache(4, null);
+
+        CompilationResult result = sut.compile("p { width: #ff0000; }");
+
+        Assertions.assertFalse(result.isSuccessful());
+        Assertions.assertNull(result.getCss());
+        Assertions.assertEquals(1, result.getErrors().size());
+        Assertions.assertSame(result, sut.compile("p { width: #ff0000; }"));
+    }
+
+    @Test
+    void testHitsAndMisses() throws IOException {
+        CompilationCache sut = new CompilationCache(4, null);
+
+        sut.compile("a", MODE, countingCompiler);
+        sut.compile("b", MODE, countingCompiler);
+        sut.compile("a", MODE, countingCompiler);
+
+        Assertions.assertEquals(2, compiles.get());
+        Assertions.assertEquals(1, sut.getHitCount());
+        Assertions.assertEquals(2, sut.getMissCount());
+        Assertions.assertEquals(0, sut.getEvictionCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws IOException {
+        CompilationCache sut = new CompilationCache(2, null);
+
+        sut.compile("a", MODE, countingCompiler);
+        sut.compile("b", MODE, countingCompiler);
+        sut.compile("a", MODE, countingCompiler);
+        sut.compile("c", MODE, countingCompiler); // evicts b
+        sut.compile("a", MODE, countingCompiler);
+        sut.compile("b", MODE, countingCompiler);
+
+        Assertions.assertEquals(4, compiles.get());
+        Assertions.assertEquals(2, sut.getEvictionCount());
+        Assertions.assertEquals(2, sut.size());
+    }
+
+    @Test
+    void testDiskStoreOutlivesCache(@TempDir Path directory) throws IOException {
+        new CompilationCache(2, directory).compile(SOURCE);
+        new CompilationCache(2, directory).compile("p { width: #ff0000; }");
+
+        CompilationCache sut = new CompilationCache(2, directory);
+        CompilationResult result = sut.compile(SOURCE, CompilationCache.STAGED, countingCompiler);
+        CompilationResult failed = sut.compile("p { width: #ff0000; }", CompilationCache.STAGED, countingCompiler);
+
+        Assertions.assertEquals(0, compiles.get());
+        Assertions.assertEquals(2, sut.getDiskHitCount());
+        Assertions.assertEquals(0, sut.getMissCount());
+        Assertions.assertEquals("p {\n  width: 15px;\n}\n\n", result.getCss());
+        Assertions.assertEquals(List.of("ERROR: Size properties should be assigned a pixel literal or a percentage literal"),
+                failed.getErrors());
+        Assertions.assertNull(failed.getCss());
+    }
+
+    @Test
+    void testModesAreCachedApart(@TempDir Path directory) throws IOException {
+        Function<String, CompilationResult> upperCase = source -> new CompilationResult(source.toUpperCase(), List.of());
+        Function<String, CompilationResult> lowerCase = source -> new CompilationResult(source.toLowerCase(), List.of());
+
+        new CompilationCache(2, directory).compile("Source", "upper", upperCase);
+        new CompilationCache(2, directory).compile("Source", "lower", lowerCase);
+
+        CompilationCache sut = new CompilationCache(2, directory);
+        Assertions.assertEquals("SOURCE", sut.compile("Source", "upper", countingCompiler).getCss());
+        Assertions.assertEquals("source", sut.compile("Source", "lower", countingCompiler).getCss());
+        Assertions.assertEquals(0, compiles.get());
+        Assertions.assertEquals(2, sut.getDiskHitCount());
+    }
+}
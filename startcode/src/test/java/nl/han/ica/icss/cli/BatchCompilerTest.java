@@ -0,0 +1,70 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchCompilerTest {
+
+    @Test
+    void testFailedCompileKeepsOutput(@TempDir Path directory) throws IOException {
+        Path source = directory.resolve("style.icss");
+        Path target = directory.resolve("style.css");
+        for (boolean fused : new boolean[]{false, true}) {
+            BatchCompiler sut = new BatchCompiler(1, null, new PrintStream(new ByteArrayOutputStream(), true));
+            sut.setFused(fused);
+
+            Files.writeString(source, "p { width: 10px; }\n", StandardCharsets.UTF_8);
+            Assertions.assertTrue(sut.compile(List.of(source)));
+            // The fused pass only finds the error after the first rule is written
+            Files.writeString(source, "a { width: 1px; }\np { width: #ff0000 + 1px; }\n", StandardCharsets.UTF_8);
+            Assertions.assertFalse(sut.compile(List.of(source)));
+
+            Assertions.assertEquals("p {\n  width: 10px;\n}\n\n", Files.readString(target, StandardCharsets.UTF_8));
+            try (Stream<Path> files = Files.list(directory)) {
+                Assertions.assertEquals(List.of(target, source), files.sorted().collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    void testModesShareCacheDirectoryWithoutSharingResults(@TempDir Path directory) throws IOException {
+        Path source = directory.resolve("in").resolve("style.icss");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "p { width: 2 * 10px; }\n", StandardCharsets.UTF_8);
+        Path cacheDirectory = directory.resolve("cache");
+
+        // Every mode misses once on the shared disk store, then hits its own result
+        for (int run = 0; run < 2; run++) {
+            for (boolean fused : new boolean[]{false, true}) {
+                for (boolean direct : new boolean[]{false, true}) {
+                    CompilationCache cache = new CompilationCache(4, cacheDirectory);
+                    Path out = directory.resolve("out-" + run + fused + direct);
+                    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+                    BatchCompiler sut = new BatchCompiler(1, out, new PrintStream(errors, true, StandardCharsets.UTF_8));
+                    sut.setFused(fused);
+                    sut.setDirectParsing(direct);
+                    sut.setCache(cache);
+
+                    Assertions.assertTrue(sut.compile(List.of(source.getParent())), errors.toString(StandardCharsets.UTF_8));
+                    Assertions.assertEquals(run == 0 ? 1 : 0, cache.getMissCount());
+                    Assertions.assertEquals(run == 0 ? 0 : 1, cache.getDiskHitCount());
+                    Assertions.assertEquals("p {\n  width: 20px;\n}\n\n",
+                            Files.readString(out.resolve("style.css"), StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static nl.han.ica.icss.parser.Sources.parse;
+import static nl.han.ica.icss.parser.Sources.resource;
+import static nl.han.ica.icss.parser.Sources.staged;
+
+public class CompiledStylesheetTest {
+
+    // Constant declarations that are overwritten, or not, in if clauses
+    private static final String SOURCE = "Dark := FALSE;\n"
+            + "Wide := FALSE;\n"
+            + "Size := 4px;\n"
+            + "p { width: 10px; color: #ff0000; if[Dark] { color: #000000; width: Size; } height: 5px; }\n"
+            + "a { background-color: #ffffff; if[Wide] { width: 100%; } else { background-color: #eeeeee; }"
+            + " width: 50%; if[Dark] { width: 1px; } }\n"
+            + "div { color: #00ff00; if[Dark] { if[Wide] { color: #0000ff; } } height: Size * 2; color: #ffffff; }\n"
+            + "#empty { }\n";
+
+    @Test
+    void testConstantStylesheets() throws IOException {
+        for (String level : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+            String source = resource(level);
+            CompiledStylesheet sut = CompiledStylesheet.compile(parse(source));
+            Assertions.assertEquals(1, sut.getChunkCount(), level);
+            Assertions.assertEquals(staged(source), sut.render(sut.newVariables()), level);
+        }
+    }
+
+    @Test
+    void testConditionallyOverwrittenConstants() {
+        CompiledStylesheet sut = CompiledStylesheet.compile(parse(SOURCE));
+        for (int i = 0; i < 4; i++) {
+            boolean dark = i % 2 == 1;
+            boolean wide = i / 2 == 1;
+            Variables variables = sut.newVariables().set("Dark", new BoolLiteral(dark)).set("Wide", new BoolLiteral(wide));
+
+            String expected = staged(SOURCE.replace("Dark := FALSE", "Dark := " + (dark ? "TRUE" : "FALSE"))
+                    .replace("Wide := FALSE", "Wide := " + (wide ? "TRUE" : "FALSE")));
+            Assertions.assertEquals(expected, sut.render(variables));
+        }
+    }
+
+    @Test
+    void testValuesThatCantBeWritten() {
+        String source = "Base := 10px;\np { width: Base - 30px; height: 3 * Base; }\n";
+        AST ast = parse(source);
+        CompiledStylesheet sut = CompiledStylesheet.compile(ast);
+        StylesheetProgram program = new StylesheetProgram(ast);
+
+        for (int base : new int[] {-20, 0, Integer.MIN_VALUE}) {
+            Assertions.assertEquals(program.render(program.newVariables().set("Base", new PixelLiteral(base))),
+                    sut.render(sut.newVariables().set("Base", new PixelLiteral(base))));
+        }
+        Assertions.assertEquals("p {\n  width: -50px;\n  height: -60px;\n}\n\n",
+                sut.render(sut.newVariables().set("Base", new PixelLiteral(-20))));
+    }
+
+    @Test
+    void testLargeStylesheetIsSplit() {
+        StringBuilder source = new StringBuilder("On := TRUE;\nSize := 3px;\n");
+        for (int i = 0; i < 3000; i++) {
+            source.append(".rule").append(i).append(" { width: Size * ").append(i)
+                    .append("; if[On] { height: ").append(i).append("px; } else { height: Size; } }\n");
+        }
+
+        AST ast = parse(source.toString());
+        CompiledStylesheet sut = CompiledStylesheet.compile(ast);
+        Assertions.assertTrue(sut.getChunkCount() > 1);
+        StylesheetProgram program = new StylesheetProgram(ast);
+        Variables variables = sut.newVariables().set("On", new BoolLiteral(false));
+        Assertions.assertEquals(staged(source.toString()), sut.render(sut.newVariables()));
+        Assertions.assertEquals(program.render(program.newVariables().set("On", new BoolLiteral(false))),
+                sut.render(variables));
+    }
+
+    @Test
+    void testLargeRule() {
+        StringBuilder source = new StringBuilder("W := 2px;\nOn := TRUE;\n.small { width: W; }\np {\n");
+        for (int i = 0; i < 3000; i++) {
+            source.append("  width: W + ").append(i).append("px;\n  height: W;\n");
+            if (i % 100 == 0) {
+                source.append("  if[On] { V := W * 2; color: #00ff00; width: V; } else { height: 1px; }\n");
+            }
+        }
+        source.append("}\n.after { height: W * 3; }\n");
+
+        CompiledStylesheet sut = CompiledStylesheet.compile(parse(source.toString()));
+        Assertions.assertEquals(3, sut.getChunkCount());
+        Assertions.assertEquals(staged(source.toString()), sut.render(sut.newVariables()));
+
+        Variables variables = sut.newVariables().set("W", new PixelLiteral(7)).set("On", new BoolLiteral(false));
+        String expected = staged(source.toString().replace("W := 2px;", "W := 7px;").replace("TRUE", "FALSE"));
+        Assertions.assertEquals(expected, sut.render(variables));
+    }
+
+    @Test
+    void testErrors() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CompiledStylesheet.compile(parse("p { width: #ffffff; }")));
+
+        CompiledStylesheet sut = CompiledStylesheet.compile(parse(SOURCE));
+        Variables other = new StylesheetProgram(parse(SOURCE)).newVariables();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sut.render(other));
+    }
+
+    @Test
+    void testBrokenClassIsReported() {
+        Assertions.assertThrows(ClassFormatError.class, () -> CompiledStylesheet.define(new byte[] {1, 2, 3}));
+    }
+}
@@ -0,0 +1,226 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static nl.han.ica.icss.parser.Sources.fused;
+import static nl.han.ica.icss.parser.Sources.resource;
+import static nl.han.ica.icss.parser.Sources.staged;
+
+public class FusedGeneratorTest {
+
+    private static final String NESTED_IFS = "Big := TRUE;\n"
+            + "Small := FALSE;\n"
+            + "Width := 10px;\n"
+            + "p {\n"
+            + "  width: Width;\n"
+            + "  if[Big] {\n"
+            + "    height: Width * 3;\n"
+            + "    if[Small] { color: #000000; } else { color: #ffffff; }\n"
+            + "    width: 20%;\n"
+            + "  }\n"
+            + "  background-color: #ff0000;\n"
+            + "  if[Small] { height: 1px; } else { X := 5px; height: X + 2px; }\n"
+            + "  background-color: #00ff00;\n"
+            + "}\n";
+
+    private static Pipeline pipeline(String source) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        Assertions.assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline;
+    }
+
+    @Test
+    void testSameOutputAsStaged() throws IOException {
+        for (String level : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+            String source = resource(level);
+            Assertions.assertEquals(staged(source), fused(source), level);
+        }
+    }
+
+    @Test
+    void testIfClauseOrderAndDuplicates() throws IOException {
+        Assertions.assertEquals(staged(NESTED_IFS), fused(NESTED_IFS));
+    }
+
+    @Test
+    void testScalarKeepsUnitOfOtherOperand() throws IOException {
+        String source = "p { width: 2 * 10px; height: 10% * 3; }";
+        Assertions.assertEquals("p {\n  width: 20px;\n  height: 30%;\n}\n\n", fused(source));
+        Assertions.assertEquals(staged(source), fused(source));
+    }
+
+    @Test
+    void testAssignmentInBranchKeepsValue() throws IOException {
+        String source = "A := 1px;\n"
+                + "p { if[TRUE] { A := 5px; if[TRUE] { A := A + 1px; } } width: A; }\n"
+                + "a { if[FALSE] { A := 5px; } else { B := 2px; A := B; } width: A; }\n"
+                + "div { width: A; }\n";
+        Assertions.assertEquals("p {\n  width: 6px;\n}\n\na {\n  width: 2px;\n}\n\ndiv {\n  width: 1px;\n}\n\n",
+                fused(source));
+        Assertions.assertEquals(staged(source), fused(source));
+    }
+
+    @Test
+    void testSameErrorsAsChecker() throws IOException {
+        String source = "A := 10px;\n"
+                + "A := #00ff00;\n"
+                + "p {\n"
+                + "  width: #ff0000;\n"
+                + "  color: A + 2px;\n"
+                + "  height: 10px * 2px;\n"
+                + "  background-color: Undefined;\n"
+                + "  if[A] { color: #000000; }\n"
+                + "  if[TRUE] { X := 5%; } else { height: X; }\n"
+                + "  foo: 10px;\n"
+                + "}\n";
+
+        Pipeline staged = pipeline(source);
+        Assertions.assertFalse(staged.check());
+
+        Pipeline fused = pipeline(source);
+        StringBuilder out = new StringBuilder();
+        Assertions.assertFalse(fused.generateFused(out));
+
+        Assertions.assertEquals(staged.getErrors(), fused.getErrors());
+        Assertions.assertEquals("", out.toString());
+    }
+
+    @Test
+    void testSameAsStagedForRandomStylesheets() throws IOException {
+        Random random = new Random(8);
+        for (int i = 0; i < 2000; i++) {
+            // Every other stylesheet only assigns each variable one type, so most of those are valid
+            String source = randomStylesheet(random, i % 2 == 0);
+
+            Pipeline staged = pipeline(source);
+            boolean valid = staged.check();
+            Pipeline fused = pipeline(source);
+            StringBuilder out = new StringBuilder();
+
+            Assertions.assertEquals(valid, fused.generateFused(out), source);
+            Assertions.assertEquals(staged.getErrors(), fused.getErrors(), source);
+            if (valid) {
+                staged.transform();
+                Assertions.assertEquals(staged.generate(), out.toString(), source);
+            }
+        }
+    }
+
+    private static final String[] VARIABLES = {"A", "B", "C"};
+    private static final String[] PROPERTIES = {"width", "height", "width", "height", "color", "background-color", "foo"};
+    private static final String[] VALUES = {"1px", "20px", "5%", "3", "2", "#ff0000", "TRUE", "FALSE"};
+    private static final String[] OPERATORS = {" + ", " - ", " * ", " * "};
+    // Typed: A is a pixel value, B a percentage and C a bool
+    private static final String[] TYPED_VALUES = {"1px", "20px", "5%", "50%", "TRUE", "FALSE"};
+
+    private static String randomStylesheet(Random random, boolean typed) {
+        StringBuilder source = new StringBuilder();
+        if (typed) {
+            source.append("A := 10px;\nB := 10%;\nC := TRUE;\n");
+        }
+        for (int i = random.nextInt(3); i > 0; i--) {
+            randomAssignment(random, typed, source);
+        }
+        for (int i = 1 + random.nextInt(2); i > 0; i--) {
+            source.append("p {\n");
+            randomBody(random, typed, source, 0);
+            source.append("}\n");
+        }
+        return source.toString();
+    }
+
+    private static void randomBody(Random random, boolean typed, StringBuilder source, int depth) {
+        for (int i = random.nextInt(5); i > 0; i--) {
+            int kind = random.nextInt(depth < 2 ? 4 : 3);
+            if (kind == 0) {
+                randomAssignment(random, typed, source);
+            } else if (kind < 3) {
+                String property = PROPERTIES[random.nextInt(PROPERTIES.length)];
+                String value;
+                if (!typed) {
+                    value = randomExpression(random);
+                } else if (property.contains("color")) {
+                    value = "#00ff00";
+                } else {
+                    value = randomTypedExpression(random, random.nextInt(2));
+                }
+                source.append(property).append(": ").append(value).append(";\n");
+            } else {
+                String condition = random.nextBoolean() ? randomVariable(random) : VALUES[6 + random.nextInt(2)];
+                if (typed) {
+                    condition = randomTypedExpression(random, 2);
+                }
+                source.append("if[").append(condition).append("] {\n");
+                randomBody(random, typed, source, depth + 1);
+                source.append("}\n");
+                if (random.nextBoolean()) {
+                    source.append("else {\n");
+                    randomBody(random, typed, source, depth + 1);
+                    source.append("}\n");
+                }
+            }
+        }
+    }
+
+    private static void randomAssignment(Random random, boolean typed, StringBuilder source) {
+        int variable = random.nextInt(VARIABLES.length);
+        String value = typed ? randomTypedExpression(random, variable) : randomExpression(random);
+        source.append(VARIABLES[variable]).append(" := ").append(value).append(";\n");
+    }
+
+    private static String randomExpression(Random random) {
+        StringBuilder expression = new StringBuilder(randomOperand(random));
+        for (int i = random.nextInt(3); i > 0; i--) {
+            expression.append(OPERATORS[random.nextInt(OPERATORS.length)]).append(randomOperand(random));
+        }
+        return expression.toString();
+    }
+
+    // An expression of the type of variable A, B or C
+    private static String randomTypedExpression(Random random, int type) {
+        String operand = random.nextBoolean() ? VARIABLES[type] : TYPED_VALUES[type * 2 + random.nextInt(2)];
+        if (type == 2) {
+            return operand;
+        }
+        StringBuilder expression = new StringBuilder(operand);
+        for (int i = random.nextInt(3); i > 0; i--) {
+            if (random.nextBoolean()) {
+                expression.append(" * ").append(1 + random.nextInt(3));
+            } else {
+                expression.append(random.nextBoolean() ? " + " : " - ").append(VARIABLES[type]);
+            }
+        }
+        return random.nextBoolean() ? expression.toString() : "2 * " + expression;
+    }
+
+    private static String randomOperand(Random random) {
+        return random.nextInt(3) == 0 ? randomVariable(random) : VALUES[random.nextInt(VALUES.length)];
+    }
+
+    private static String randomVariable(Random random) {
+        return VARIABLES[random.nextInt(VARIABLES.length)];
+    }
+
+    @Test
+    void testLeavesTreeUnchanged() throws IOException {
+        String source = resource("level3.icss");
+        Pipeline pipeline = pipeline(source);
+        String tree = pipeline.getAST().root.toString();
+
+        String first = fused(source);
+        StringBuilder second = new StringBuilder();
+        pipeline.generateFused(second);
+        pipeline.generateFused(new StringBuilder());
+
+        Assertions.assertEquals(tree, pipeline.getAST().root.toString());
+        Assertions.assertEquals(first, second.toString());
+    }
+}
@@ -0,0 +1,105 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.Stylesheet;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+public class GeneratorTest {
+
+    private static AST stylesheet(int rules) {
+        Stylesheet stylesheet = new Stylesheet();
+        for (int i = 0; i < rules; i++) {
+            stylesheet.addChild((new Stylerule())
+                    .addChild(new TagSelector("p"))
+                    .addChild(new ClassSelector(".é" + i))
+                    .addChild((new Declaration("width"))
+                            .addChild(new PixelLiteral(-i)))
+                    .addChild((new Declaration("height"))
+                            .addChild(new PercentageLiteral(i * 1000)))
+                    .addChild((new Declaration("color"))
+                            .addChild(new ColorLiteral("#ff0000"))));
+        }
+        return new AST(stylesheet);
+    }
+
+    @Test
+    void testGenerate() {
+        String css = new Generator().generate(stylesheet(1));
+
+        Assertions.assertEquals("p, .é0 {\n  width: 0px;\n  height: 0%;\n  color: #ff0000;\n}\n\n", css);
+    }
+
+    @Test
+    void testGenerateNumbers() {
+        String css = new Generator().generate(stylesheet(12));
+
+        Assertions.assertTrue(css.contains("  width: -11px;\n"));
+        Assertions.assertTrue(css.contains("  height: 10000%;\n"));
+    }
+
+    @Test
+    void testGenerateToAppendable() throws IOException {
+        AST ast = stylesheet(3);
+        StringBuilder out = new StringBuilder();
+
+        new Generator().generate(ast, out);
+
+        Assertions.assertEquals(new Generator().generate(ast), out.toString());
+    }
+
+    @Test
+    void testGenerateToChannelLargerThanBuffer() throws IOException {
+        AST ast = stylesheet(2000);
+        Generator generator = new Generator();
+
+        // Twice with the same generator, the buffer is reused
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            generator.generate(ast, Channels.newChannel(bytes));
+
+            Assertions.assertEquals(generator.generate(ast), bytes.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testGenerateLoneSurrogatesToChannel() throws IOException {
+        Stylesheet stylesheet = new Stylesheet();
+        // A pair, a high surrogate without its low half, a low one on its own and a high one at the end
+        for (String cls : new String[]{".\uD83D\uDE00", ".a\uD83Db", ".\uDE00", ".\uD83D\uD83D\uDE00", ".\uD83D"}) {
+            stylesheet.addChild((new Stylerule())
+                    .addChild(new ClassSelector(cls))
+                    .addChild((new Declaration("width"))
+                            .addChild(new PixelLiteral(1))));
+        }
+        AST ast = new AST(stylesheet);
+        Generator generator = new Generator();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        generator.generate(ast, Channels.newChannel(bytes));
+
+        String css = generator.generate(ast);
+        Assertions.assertArrayEquals(css.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+        Assertions.assertTrue(bytes.toString(StandardCharsets.UTF_8).contains(".a?b {"));
+
+        // A high surrogate at the very end is written when the writer is flushed
+        ByteChannelWriter writer = new ByteChannelWriter(16);
+        bytes.reset();
+        writer.open(Channels.newChannel(bytes));
+        writer.append("end\uD83D");
+        writer.flush();
+        Assertions.assertEquals("end?", bytes.toString(StandardCharsets.UTF_8));
+    }
+}
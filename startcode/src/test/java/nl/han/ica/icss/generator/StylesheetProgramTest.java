@@ -0,0 +1,64 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static nl.han.ica.icss.parser.Sources.parseAndCheck;
+import static nl.han.ica.icss.parser.Sources.resource;
+import static nl.han.ica.icss.parser.Sources.staged;
+
+public class StylesheetProgramTest {
+
+    private static final String SOURCE = "LinkColor := #0000ff;\n"
+            + "Base := 10px;\n"
+            + "Double := Base * 2 + 4px;\n"
+            + "Dark := FALSE;\n"
+            + "a { color: LinkColor; Base := 1px; width: Base + Double; }\n"
+            + "p { width: Double; if[Dark] { color: LinkColor; Double := 3px; } else { Local := 5%; height: Local; }"
+            + " height: Double; width: 2 * Base; }\n"
+            + ".note { if[Dark] { background-color: #000000; } else { background-color: #ffffff; } }\n"
+            + "div { width: Base; }\n";
+
+    @Test
+    void testSameOutputAsStaged() throws IOException {
+        for (String source : List.of(resource("level0.icss"), resource("level1.icss"), resource("level2.icss"),
+                resource("level3.icss"), SOURCE)) {
+            StylesheetProgram sut = new StylesheetProgram(parseAndCheck(source));
+            Assertions.assertEquals(staged(source), sut.render(sut.newVariables()));
+        }
+    }
+
+    @Test
+    void testOverrides() {
+        StylesheetProgram sut = new StylesheetProgram(parseAndCheck(SOURCE));
+        Variables variables = sut.newVariables();
+        for (int i = 0; i < 16; i++) {
+            String color = String.format("#%06x", i * 40503);
+            boolean dark = i % 2 == 0;
+            variables.set("LinkColor", new ColorLiteral(color)).set("Base", new PixelLiteral(i))
+                    .set("Dark", new BoolLiteral(dark));
+
+            String expected = staged(SOURCE.replace("#0000ff", color).replace("10px", i + "px")
+                    .replace("FALSE", dark ? "TRUE" : "FALSE"));
+            Assertions.assertEquals(expected, sut.render(variables));
+        }
+
+        variables.reset();
+        Assertions.assertEquals(staged(SOURCE), sut.render(variables));
+    }
+
+    @Test
+    void testInvalidOverride() {
+        Variables variables = new StylesheetProgram(parseAndCheck(SOURCE)).newVariables();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> variables.set("Dark", new PixelLiteral(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> variables.set("Local", new PixelLiteral(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> variables.set("LinkColor", new ColorLiteral("red")));
+    }
+}
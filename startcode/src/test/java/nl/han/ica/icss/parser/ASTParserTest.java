@@ -0,0 +1,85 @@
+package nl.han.ica.icss.parser;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+import java.io.*;
+import java.util.List;
+
+class ASTParserTest {
+
+	AST parseTestFile(String resource) throws IOException {
+		ClassLoader classLoader = this.getClass().getClassLoader();
+		InputStream inputStream = classLoader.getResourceAsStream(resource);
+		return parse(CharStreams.fromStream(inputStream));
+	}
+
+	AST parse(CharStream charStream) {
+		ICSSLexer lexer = new ICSSLexer(charStream);
+
+		BaseErrorListener errorListener = new BaseErrorListener() {
+			public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+				fail(msg);
+			}
+		};
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(errorListener);
+
+		return new ASTParser(lexer, errorListener).parse();
+	}
+
+	// The Antlr parse tree walked by the ASTListener, what the ASTParser should match
+	String listenerTree(String source) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+		return pipeline.getAST().toString();
+	}
+
+	@Test
+	void testParseLevel0() throws IOException {
+		assertEquals(Fixtures.uncheckedLevel0(), parseTestFile("level0.icss"));
+	}
+	@Test
+	void testParseLevel1() throws IOException {
+		assertEquals(Fixtures.uncheckedLevel1(), parseTestFile("level1.icss"));
+	}
+	@Test
+	void testParseLevel2() throws IOException {
+		assertEquals(Fixtures.uncheckedLevel2(), parseTestFile("level2.icss"));
+	}
+	@Test
+	void testParseLevel3() throws IOException {
+		assertEquals(Fixtures.uncheckedLevel3(), parseTestFile("level3.icss"));
+	}
+
+	@Test
+	void testSameTreeAsListener() {
+		List<String> sources = List.of(
+				"A := 1 + 2 * 3 - 4;",
+				"A := 1 * 2 + 3 * 4 * 5 - 6 - 7;",
+				"A := 10px 20px + 5px;",
+				"p { if[A] { width: 1px; if[FALSE] { } else { X := 2; height: X * 3%; } } else { color: #aabbcc; } }",
+				".a { } #b { width: 10% + 0%; }");
+
+		for (String source : sources) {
+			assertEquals(listenerTree(source), parse(CharStreams.fromString(source)).toString(), source);
+		}
+	}
+
+	@Test
+	void testSyntaxErrorStopsParsing() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.setDirectParsing(true);
+		pipeline.parseString("p { width 10px; }");
+
+		assertFalse(pipeline.isParsed());
+		assertEquals(List.of("Syntax error: mismatched input '10px' expecting ':'"), pipeline.getErrors());
+	}
+}
@@ -0,0 +1,105 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static nl.han.ica.icss.parser.Sources.resource;
+
+public class ByteLexerTest {
+
+    private static final String[] FRAGMENTS = {
+            "#", ".", ":", "=", ":=", "px", "p", "x", "%", "a", "f", "g", "z", "-", "_", "A", "Z",
+            "TRUE", "FALSE", "if", "else", "12", "0", " ", "\n", "\t", "\r", "{", "}", ";", "[", "]",
+            "+", "*", "/", "!", "#abcdef", "#ABCDEF", "é", "€", "𝄞"
+    };
+
+    private static class Errors extends BaseErrorListener {
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            messages.add(line + ":" + charPositionInLine + " " + msg);
+        }
+    }
+
+    // Every token and then every error, the text is only asked for after lexing everything
+    private static List<String> lex(TokenSource lexer, Errors errors) {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token);
+        } while (token.getType() != Token.EOF);
+
+        List<String> result = new ArrayList<>();
+        for (Token t : tokens) {
+            result.add(t.getType() + " '" + t.getText() + "' " + t.getLine() + ":" + t.getCharPositionInLine()
+                    + " " + t.getStartIndex() + "-" + t.getStopIndex() + " " + t.getChannel());
+        }
+        result.addAll(errors.messages);
+        return result;
+    }
+
+    private static List<String> antlrTokens(String source) {
+        Errors errors = new Errors();
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errors);
+        return lex(lexer, errors);
+    }
+
+    private static List<String> byteTokens(String source) {
+        Errors errors = new Errors();
+        return lex(new ByteLexer(source.getBytes(StandardCharsets.UTF_8), errors), errors);
+    }
+
+    @Test
+    void testSameTokensAsICSSLexer() throws IOException {
+        for (String name : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+            String source = resource(name);
+            Assertions.assertEquals(antlrTokens(source), byteTokens(source), name);
+        }
+    }
+
+    @Test
+    void testSameTokensAndErrorsOnRandomInput() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder source = new StringBuilder();
+            int length = i < 190 ? random.nextInt(20) : 3000;
+            for (int j = 0; j < length; j++) {
+                source.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            Assertions.assertEquals(antlrTokens(source.toString()), byteTokens(source.toString()), source.toString());
+        }
+    }
+
+    @Test
+    void testTokenBoundaries() {
+        for (String source : List.of("10px 10pz 10% 10p", "#abcdef #abcdeff #abcde #ab-def #", ".a-1 . :=: iffy if else",
+                "TRUE TRUEX FALSE_ A_b9", "", " \n\t")) {
+            Assertions.assertEquals(antlrTokens(source), byteTokens(source), source);
+        }
+    }
+
+    @Test
+    void testParsesWithICSSParser() throws IOException {
+        Errors errors = new Errors();
+        ByteLexer lexer = new ByteLexer(resource("level3.icss").getBytes(StandardCharsets.UTF_8), errors);
+        Assertions.assertEquals(Fixtures.uncheckedLevel3(), new ASTParser(lexer, errors).parse());
+        Assertions.assertTrue(errors.messages.isEmpty(), errors.messages.toString());
+    }
+}
@@ -0,0 +1,98 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.Pipeline;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static nl.han.ica.icss.parser.Sources.resourceBytes;
+
+public class MappedCharStreamTest {
+
+    private static List<String> tokens(CharStream input) {
+        ICSSLexer lexer = new ICSSLexer(input);
+        List<String> tokens = new ArrayList<>();
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            tokens.add(token.getType() + " " + token.getText() + " " + token.getLine() + ":"
+                    + token.getCharPositionInLine() + " " + token.getStartIndex());
+        }
+        return tokens;
+    }
+
+    @Test
+    void testParseFileSameAsParseString(@TempDir Path directory) throws IOException {
+        for (String name : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+            Path file = Files.write(directory.resolve(name), resourceBytes(name));
+
+            Pipeline expected = new Pipeline();
+            expected.parseString(Files.readString(file));
+            Pipeline sut = new Pipeline();
+            sut.parseFile(file);
+
+            Assertions.assertTrue(sut.isParsed(), sut.getErrors().toString());
+            Assertions.assertEquals(expected.getAST(), sut.getAST());
+
+            // Lexed by the ByteLexer
+            Pipeline direct = new Pipeline();
+            direct.setDirectParsing(true);
+            direct.parseFile(file);
+            Assertions.assertEquals(expected.getAST(), direct.getAST());
+            Assertions.assertEquals(tokens(CharStreams.fromPath(file)), tokens(MappedCharStream.open(file)));
+        }
+    }
+
+    @Test
+    void testDecodesUtf8(@TempDir Path directory) throws IOException {
+        String text = "aé€𝄞b\nc";
+        Path file = Files.writeString(directory.resolve("utf8.icss"), text);
+        CharStream expected = CharStreams.fromPath(file);
+        MappedCharStream sut = MappedCharStream.open(file);
+
+        Assertions.assertEquals(expected.size(), sut.size());
+        for (int i = 0; i <= sut.size(); i++) {
+            Assertions.assertEquals(expected.LA(1), sut.LA(1));
+            if (i > 0) {
+                Assertions.assertEquals(expected.LA(-1), sut.LA(-1));
+            }
+            Assertions.assertEquals(expected.LA(3), sut.LA(3));
+            if (i < sut.size()) {
+                expected.consume();
+                sut.consume();
+            }
+        }
+        Assertions.assertEquals(IntStream.EOF, sut.LA(1));
+        Assertions.assertThrows(IllegalStateException.class, sut::consume);
+
+        sut.seek(2);
+        Assertions.assertEquals(0x20ac, sut.LA(1));
+        Assertions.assertEquals("€𝄞", sut.getText(Interval.of(2, 3)));
+        sut.seek(0);
+        Assertions.assertEquals(text, sut.getText(Interval.of(0, sut.size() - 1)));
+        Assertions.assertEquals("c", sut.getText(Interval.of(6, 100)));
+    }
+
+    @Test
+    void testMalformedBytes(@TempDir Path directory) throws IOException {
+        // A stray continuation byte, a lead byte without its continuation and an overlong '/'
+        Path file = Files.write(directory.resolve("broken.icss"),
+                new byte[]{(byte) 0x80, 'a', (byte) 0xE2, (byte) 0x82, 'b', (byte) 0xC0, (byte) 0xAF});
+        MappedCharStream sut = MappedCharStream.open(file);
+
+        Assertions.assertEquals(5, sut.size());
+        Assertions.assertEquals("�a�b�", sut.getText(Interval.of(0, 4)));
+        sut.seek(3);
+        Assertions.assertEquals('b', sut.LA(1));
+        Assertions.assertEquals(0xFFFD, sut.LA(-1));
+    }
+}
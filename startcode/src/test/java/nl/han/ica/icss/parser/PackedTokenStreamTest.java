@@ -0,0 +1,132 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static nl.han.ica.icss.parser.Sources.resource;
+
+public class PackedTokenStreamTest {
+
+    private static final String[] FRAGMENTS = {
+            "p", ".note", "#menu", "#abcdef", "{", "}", "width", "color", ":", ";", "10px", "50%", "3",
+            "Var", ":=", "if", "[", "]", "TRUE", "FALSE", "else", "+", "-", "*", " ", "\n", "!", "é"
+    };
+
+    private static class Errors extends BaseErrorListener {
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            messages.add(line + ":" + charPositionInLine + " " + msg);
+        }
+    }
+
+    private static ICSSLexer lexer(String source, Errors errors) {
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errors);
+        return lexer;
+    }
+
+    // The parse tree, the AST and the lexer and parser errors in the order they were reported
+    private static List<String> parse(TokenStream tokens, Errors errors) {
+        ICSSParser parser = new ICSSParser(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errors);
+        ParseTree parseTree = parser.stylesheet();
+
+        List<String> result = new ArrayList<>();
+        result.add(parseTree.toStringTree(parser));
+        try {
+            ASTListener listener = new ASTListener();
+            new ParseTreeWalker().walk(listener, parseTree);
+            result.add(listener.getAST().toString());
+        } catch (RuntimeException e) {
+            // The listener doesn't expect every broken tree
+            result.add(e.getClass().getName());
+        }
+        result.addAll(errors.messages);
+        return result;
+    }
+
+    private static List<String> common(String source) {
+        Errors errors = new Errors();
+        return parse(new CommonTokenStream(lexer(source, errors)), errors);
+    }
+
+    private static List<String> packed(String source) {
+        Errors errors = new Errors();
+        return parse(new PackedTokenStream(lexer(source, errors)), errors);
+    }
+
+    private static List<String> packedBytes(String source) {
+        Errors errors = new Errors();
+        return parse(new PackedTokenStream(new ByteLexer(source.getBytes(StandardCharsets.UTF_8), errors)), errors);
+    }
+
+    @Test
+    void testSameParseAsCommonTokenStream() throws IOException {
+        for (String name : List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss")) {
+            String source = resource(name);
+            Assertions.assertEquals(common(source), packed(source), name);
+            Assertions.assertEquals(common(source), packedBytes(source), name);
+        }
+    }
+
+    @Test
+    void testSameErrorsAsCommonTokenStream() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            StringBuilder source = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                source.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]).append(' ');
+            }
+            Assertions.assertEquals(common(source.toString()), packed(source.toString()), source.toString());
+            Assertions.assertEquals(common(source.toString()), packedBytes(source.toString()), source.toString());
+        }
+    }
+
+    @Test
+    void testStream() {
+        PackedTokenStream sut = new PackedTokenStream(lexer("p { width: 10px; }", new Errors()));
+        Assertions.assertNull(sut.LT(-1));
+        Assertions.assertEquals(ICSSLexer.LOWER_IDENT, sut.LA(1));
+        Assertions.assertEquals(ICSSLexer.COLON, sut.LA(4));
+
+        sut.seek(3);
+        Token token = sut.LT(1);
+        Assertions.assertEquals(":", token.getText());
+        Assertions.assertEquals(3, token.getTokenIndex());
+        Assertions.assertEquals(9, token.getStartIndex());
+        Assertions.assertEquals(1, token.getLine());
+        Assertions.assertEquals(9, token.getCharPositionInLine());
+        Assertions.assertEquals("width", sut.LT(-1).getText());
+
+        Assertions.assertEquals(Token.EOF, sut.LA(100));
+        Assertions.assertEquals("p{width:10px;}", sut.getText());
+        Assertions.assertEquals("width:", sut.getText(Interval.of(2, 3)));
+        Assertions.assertEquals(8, sut.size());
+
+        sut.seek(7);
+        Assertions.assertThrows(IllegalStateException.class, sut::consume);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> sut.get(8));
+    }
+}
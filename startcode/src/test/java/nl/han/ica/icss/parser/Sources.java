@@ -0,0 +1,68 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the test sources and runs them through the Pipeline, for the tests that compare
+ * another way of compiling with the stages of the Pipeline.
+ */
+public class Sources {
+
+    public static byte[] resourceBytes(String name) throws IOException {
+        try (InputStream stream = Sources.class.getClassLoader().getResourceAsStream(name)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    public static String resource(String name) throws IOException {
+        return new String(resourceBytes(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the parsed AST, the source must not have syntax errors
+     */
+    public static AST parse(String source) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        Assertions.assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    /**
+     * @return the parsed and checked AST, the source must not have errors
+     */
+    public static AST parseAndCheck(String source) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        Assertions.assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    /**
+     * @return the CSS the stages of the Pipeline give, one after the other
+     */
+    public static String staged(String source) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        Assertions.assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+        return pipeline.generate();
+    }
+
+    /**
+     * @return the CSS the Pipeline gives in one pass over the parsed AST
+     */
+    public static String fused(String source) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        StringBuilder out = new StringBuilder();
+        Assertions.assertTrue(pipeline.generateFused(out), pipeline.getErrors().toString());
+        return out.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.generator.Generator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static nl.han.ica.icss.parser.Sources.parseAndCheck;
+import static nl.han.ica.icss.parser.Sources.resource;
+
+public class EvaluatorTest {
+    private static final String SOURCE = "Width := 10px;\n"
+            + "Big := TRUE;\n"
+            + "p { width: Width + 2px; if[Big] { height: 5%; if[FALSE] { color: #000000; } } width: 3px; }\n"
+            + "a { color: #ff0000; height: 50%; }\n";
+
+    @Test
+    void testInputIsNotChanged() throws IOException {
+        for (String source : List.of(resource("level3.icss"), SOURCE)) {
+            AST ast = parseAndCheck(source);
+            String before = ast.toString();
+
+            AST evaluated = new Evaluator().evaluate(ast);
+            Assertions.assertEquals(before, ast.toString());
+
+            // Same result as apply
+            AST applied = parseAndCheck(source);
+            new Evaluator().apply(applied);
+            Assertions.assertEquals(applied.toString(), evaluated.toString());
+        }
+    }
+
+    @Test
+    void testIfClauseIsReplacedInPlace() {
+        AST ast = parseAndCheck("p { width: 1px; if[TRUE] { color: #000000; if[FALSE] { } else { height: 2px; } }"
+                + " background-color: #ffffff; if[TRUE] { color: #ffffff; } }");
+        Stylerule p = (Stylerule) new Evaluator().evaluate(ast).root.body.get(0);
+
+        List<String> properties = new ArrayList<>();
+        for (int i = 0; i < p.body.size(); i++) {
+            properties.add(((Declaration) p.body.get(i)).getProperty().name);
+        }
+        // The first color is overwritten by the last one
+        Assertions.assertEquals(List.of("width", "height", "background-color", "color"), properties);
+    }
+
+    @Test
+    void testDuplicateRemovalKeepsOtherProperties() {
+        AST ast = parseAndCheck("p { background-color: #000000; color: #000000; color: #ffffff; }");
+        Stylerule p = (Stylerule) new Evaluator().evaluate(ast).root.body.get(0);
+
+        // The first color is equal to the background-color apart from its name, that one stays
+        Assertions.assertEquals(2, p.body.size());
+        Assertions.assertEquals("background-color", ((Declaration) p.body.get(0)).getProperty().name);
+        Assertions.assertEquals("color", ((Declaration) p.body.get(1)).getProperty().name);
+    }
+
+    @Test
+    void testDuplicateRemovalKeepsLastOfEach() {
+        AST ast = parseAndCheck("p { width: 1px; height: 1px; width: 2px; background-color: #111111; height: 2px;"
+                + " width: 3px; color: #000000; background-color: #222222; }");
+        Stylerule p = (Stylerule) new Evaluator().evaluate(ast).root.body.get(0);
+
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < p.body.size(); i++) {
+            Declaration declaration = (Declaration) p.body.get(i);
+            values.add(declaration.getProperty().name + ":" + declaration.getExpression().getNodeLabel());
+        }
+        Assertions.assertEquals(List.of("height:Pixel literal (2)", "width:Pixel literal (3)",
+                "color:Color literal (#000000)", "background-color:Color literal (#222222)"), values);
+    }
+
+    @Test
+    void testFoldsDeepExpressions() {
+        AST ast = parseAndCheck("ParWidth := 100px;\nFactor := 3;\n"
+                + "p { width: ParWidth + 20px * Factor - 2 * 5px; height: 10% * 2 + 5%; }");
+        Stylerule p = (Stylerule) new Evaluator().evaluate(ast).root.body.get(2);
+
+        Declaration width = (Declaration) p.body.get(0);
+        Assertions.assertEquals(new PixelLiteral(150), width.getExpression());
+        Declaration height = (Declaration) p.body.get(1);
+        Assertions.assertEquals(new PercentageLiteral(25), height.getExpression());
+    }
+
+    @Test
+    void testScalarTakesUnitOfOtherOperand() {
+        AST ast = parseAndCheck("Factor := 3;\np { width: 2 * 10px; height: Factor * 2 * 5% + 10%; }");
+        Stylerule p = (Stylerule) new Evaluator().evaluate(ast).root.body.get(1);
+
+        Assertions.assertEquals(new PixelLiteral(20), ((Declaration) p.body.get(0)).getExpression());
+        Assertions.assertEquals(new PercentageLiteral(40), ((Declaration) p.body.get(1)).getExpression());
+    }
+
+    @Test
+    void testSharesUnchangedNodes() {
+        AST ast = parseAndCheck(SOURCE);
+        AST evaluated = new Evaluator().evaluate(ast);
+
+        Stylerule p = (Stylerule) ast.root.body.get(2);
+        Stylerule evaluatedP = (Stylerule) evaluated.root.body.get(2);
+        Assertions.assertNotSame(p, evaluatedP);
+        Assertions.assertSame(p.selectors.get(0), evaluatedP.selectors.get(0));
+        // width: 3px already held a literal, the earlier width was dropped as a duplicate
+        Assertions.assertEquals("height", ((Declaration) evaluatedP.body.get(0)).getProperty().name);
+        Assertions.assertSame(p.body.get(2), evaluatedP.body.get(1));
+
+        // Nothing to evaluate in this rule
+        Assertions.assertSame(ast.root.body.get(3), evaluated.root.body.get(3));
+    }
+
+    @Test
+    void testConcurrentEvaluation() throws Exception {
+        AST ast = parseAndCheck(resource("level3.icss"));
+        String expected = new Generator().generate(new Evaluator().evaluate(ast));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> new Generator().generate(new Evaluator().evaluate(ast))));
+            }
+            for (Future<String> result : results) {
+                Assertions.assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
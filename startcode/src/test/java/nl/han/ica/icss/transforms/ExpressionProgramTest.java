@@ -0,0 +1,74 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class ExpressionProgramTest {
+
+    // Width is slot 0, Factor slot 1
+    private static final List<String> NAMES = List.of("Width", "Factor");
+    private static final List<ExpressionType> TYPES = List.of(ExpressionType.PIXEL, ExpressionType.SCALAR);
+
+    private static final ExpressionProgram.Slots SLOTS = new ExpressionProgram.Slots() {
+        @Override
+        public int slotOf(String name) {
+            return NAMES.indexOf(name);
+        }
+
+        @Override
+        public ExpressionType typeOf(int slot) {
+            return TYPES.get(slot);
+        }
+    };
+
+    private static Expression operation(Expression operation, Expression lhs, Expression rhs) {
+        return (Expression) operation.addChild(lhs).addChild(rhs);
+    }
+
+    @Test
+    void testRunsWithOtherValues() {
+        // Width + 20px * Factor - 2 * 5px
+        Expression expression = operation(new SubtractOperation(),
+                operation(new AddOperation(), new VariableReference("Width"),
+                        operation(new MultiplyOperation(), new PixelLiteral(20), new VariableReference("Factor"))),
+                operation(new MultiplyOperation(), new ScalarLiteral(2), new PixelLiteral(5)));
+        ExpressionProgram sut = ExpressionProgram.compile(expression, SLOTS);
+
+        Assertions.assertEquals(ExpressionType.PIXEL, sut.getUnit());
+        Assertions.assertEquals(3, sut.getMaxStack());
+        Assertions.assertEquals(new PixelLiteral(150), sut.evaluate(new int[]{100, 3}));
+        Assertions.assertEquals(new PixelLiteral(30), sut.evaluate(new int[]{0, 2}));
+
+        // Five loads and constants with their operand, four operations without one
+        int[] code = sut.getCode();
+        Assertions.assertEquals(5 * 2 + 4, code.length);
+        Assertions.assertEquals(ExpressionProgram.SUBTRACT, code[code.length - 1]);
+    }
+
+    @Test
+    void testUnitOfOperandThatIsNotAScalar() {
+        ExpressionProgram sut = ExpressionProgram.compile(
+                operation(new MultiplyOperation(), new ScalarLiteral(2), new PercentageLiteral(10)), SLOTS);
+        Assertions.assertEquals(new PercentageLiteral(20), sut.evaluate(new int[0]));
+    }
+
+    @Test
+    void testColors() {
+        ExpressionProgram sut = ExpressionProgram.compile(new ColorLiteral("#0a0b0c"), SLOTS);
+        Assertions.assertEquals(0x0a0b0c, sut.run(new int[0], new int[1]));
+        Assertions.assertEquals(new ColorLiteral("#0a0b0c"), sut.evaluate(new int[0]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ExpressionProgram.colorValue("#fff"));
+    }
+}
@@ -0,0 +1,73 @@
+package nl.han.ica.icss.variables;
+
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static nl.han.ica.icss.parser.Sources.fused;
+import static nl.han.ica.icss.parser.Sources.parse;
+
+public class LiveStylesheetTest {
+    private static final String SOURCE = "LinkColor := #0000ff;\n"
+            + "Base := 10px;\n"
+            + "Double := Base * 2;\n"
+            + "Dark := FALSE;\n"
+            + "a { color: LinkColor; }\n"
+            + "p { width: Double; }\n"
+            + "#menu { X := Base; height: X + 1px; }\n"
+            + ".note { if[Dark] { background-color: #000000; } else { background-color: #ffffff; } }\n"
+            + "div { width: 50%; }\n";
+
+    private static List<String> selectors(List<Stylerule> rules) {
+        return rules.stream().map(rule -> rule.selectors.get(0).toString()).collect(Collectors.toList());
+    }
+
+    @Test
+    void testAffectedRules() {
+        VariableDependencyGraph graph = new VariableDependencyGraph(parse(SOURCE));
+
+        Assertions.assertEquals(List.of("a"), selectors(graph.affectedRules(Set.of("LinkColor"))));
+        // Through Double and through the local X
+        Assertions.assertEquals(List.of("p", "#menu"), selectors(graph.affectedRules(Set.of("Base"))));
+        Assertions.assertEquals(List.of(".note"), selectors(graph.affectedRules(Set.of("Dark"))));
+        Assertions.assertEquals(Set.of("Base", "Double"), graph.affectedVariables(Set.of("Base")));
+        Assertions.assertEquals(1, graph.readersOf("Dark").size());
+    }
+
+    @Test
+    void testOnlyAffectedRulesAreGenerated() throws IOException {
+        LiveStylesheet sut = new LiveStylesheet(parse(SOURCE));
+        Assertions.assertEquals(fused(SOURCE), sut.generate());
+        Assertions.assertEquals(5, sut.getRenderCount());
+
+        sut.setVariable("LinkColor", new ColorLiteral("#ff0000"));
+        Assertions.assertEquals(fused(SOURCE.replace("#0000ff", "#ff0000")), sut.generate());
+        Assertions.assertEquals(6, sut.getRenderCount());
+
+        sut.setVariable("Base", new PixelLiteral(4));
+        sut.setVariable("Dark", new BoolLiteral(true));
+        Assertions.assertEquals(fused(SOURCE.replace("#0000ff", "#ff0000").replace("10px", "4px")
+                .replace("FALSE", "TRUE")), sut.generate());
+        Assertions.assertEquals(9, sut.getRenderCount());
+
+        sut.reset();
+        Assertions.assertEquals(fused(SOURCE), sut.generate());
+        Assertions.assertEquals(13, sut.getRenderCount());
+    }
+
+    @Test
+    void testOverrideMustKeepType() {
+        LiveStylesheet sut = new LiveStylesheet(parse(SOURCE));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sut.setVariable("Base", new ColorLiteral("#ffffff")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sut.setVariable("Unknown", new PixelLiteral(1)));
+    }
+}
@@ -0,0 +1,104 @@
+package nl.han.ica.icss.variables;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import static nl.han.ica.icss.parser.Sources.parse;
+import static nl.han.ica.icss.parser.Sources.staged;
+
+public class ThemeCompilerTest {
+    private static final String SOURCE = "LinkColor := #0000ff;\n"
+            + "Base := 10px;\n"
+            + "Double := Base * 2;\n"
+            + "Dark := FALSE;\n"
+            + "a { color: LinkColor; }\n"
+            + "p { width: Double; if[Dark] { color: LinkColor; } }\n"
+            + ".note { if[Dark] { background-color: #000000; } else { background-color: #ffffff; } }\n"
+            + "div { width: 50%; }\n";
+
+    private static String color(int i) {
+        return String.format("#%06x", i * 40503);
+    }
+
+    @Test
+    void testSameResultAsCompilingEveryTheme() {
+        List<Map<String, Literal>> themes = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            boolean dark = i % 2 == 0;
+            themes.add(Map.of("LinkColor", new ColorLiteral(color(i)), "Base", new PixelLiteral(i),
+                    "Dark", new BoolLiteral(dark)));
+            expected.add(staged(SOURCE.replace("#0000ff", color(i)).replace("10px", i + "px")
+                    .replace("FALSE", dark ? "TRUE" : "FALSE")));
+        }
+        themes.add(Map.of());
+        expected.add(staged(SOURCE));
+
+        try (ThemeCompiler sut = new ThemeCompiler(parse(SOURCE), 4)) {
+            Assertions.assertEquals(expected, sut.compile(themes));
+            // Again, the AST wasn't changed by the first run
+            Assertions.assertEquals(expected, sut.compile(themes));
+        }
+    }
+
+    @Test
+    void testPools() {
+        List<Map<String, Literal>> themes = List.of(Map.of(), Map.of("Dark", new BoolLiteral(true)));
+        List<String> expected = List.of(staged(SOURCE), staged(SOURCE.replace("FALSE", "TRUE")));
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            try (ThemeCompiler sut = new ThemeCompiler(parse(SOURCE), pool)) {
+                Assertions.assertEquals(expected, sut.compile(themes));
+            }
+            // Not closed with the ThemeCompiler, it belongs to the caller
+            Assertions.assertFalse(pool.isShutdown());
+            try (ThemeCompiler other = new ThemeCompiler(parse(SOURCE), pool)) {
+                Assertions.assertEquals(expected, other.compile(themes));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        ThemeCompiler sut = new ThemeCompiler(parse(SOURCE), 2);
+        sut.close();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> sut.compile(themes));
+    }
+
+    @Test
+    void testSameResultAsPipelineForAssignmentsInBranches() {
+        String source = "A := 1px;\nW := 10px;\n"
+                + "p { if[TRUE] { A := 5px; } width: A; height: 2 * W; }\n"
+                + "a { width: A; }\n";
+        try (ThemeCompiler sut = new ThemeCompiler(parse(source), 2)) {
+            Assertions.assertEquals(List.of(staged(source), staged(source.replace("10px", "3px"))),
+                    sut.compile(List.of(Map.of(), Map.of("W", new PixelLiteral(3)))));
+            Assertions.assertEquals("p {\n  width: 5px;\n  height: 6px;\n}\n\na {\n  width: 1px;\n}\n\n",
+                    sut.compile(Map.of("W", new PixelLiteral(3))));
+        }
+    }
+
+    @Test
+    void testSemanticErrors() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new ThemeCompiler(parse("p { width: #ff0000; }"), 1));
+    }
+
+    @Test
+    void testInvalidOverride() {
+        try (ThemeCompiler sut = new ThemeCompiler(parse(SOURCE), 2)) {
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> sut.compile(List.of(Map.of("Dark", new PixelLiteral(1)))));
+        }
+    }
+}